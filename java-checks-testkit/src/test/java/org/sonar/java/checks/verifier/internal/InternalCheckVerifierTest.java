@@ -993,7 +993,7 @@ class InternalCheckVerifierTest {
   @Test
   void withCache_effectively_sets_the_caches_for_scanWithoutParsing() throws IOException, NoSuchAlgorithmException {
     InputFile inputFile = InternalInputFile.inputFile("", new File(TEST_FILE), InputFile.Status.SAME);
-    ReadCache readCache = new InternalReadCache().put("java:contentHash:MD5::" + TEST_FILE, FileHashingUtils.inputFileContentHash(inputFile));
+    ReadCache readCache = new InternalReadCache().put("java:contentHash:MD5-v2::" + TEST_FILE, FileHashingUtils.inputFileContentHash(inputFile));
     WriteCache writeCache = new InternalWriteCache().bind(readCache);
     CacheContext cacheContext = new InternalCacheContext(
       true,
@@ -16,12 +16,13 @@
  */
 package org.sonar.java.checks;
 
-import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.caching.CachePayloadCodec;
 import org.sonar.java.checks.helpers.ExpressionsHelper;
 import org.sonar.plugins.java.api.InputFileScannerContext;
 import org.sonar.plugins.java.api.JavaFileScanner;
@@ -70,14 +71,14 @@ public abstract class AbstractPackageInfoChecker implements JavaFileScanner, End
 
   protected static Optional<String> getPackageFromCache(InputFileScannerContext inputFileScannerContext) {
     var cacheKey = cacheKey(inputFileScannerContext.getInputFile());
-    var bytes = inputFileScannerContext.getCacheContext().getReadCache().readBytes(cacheKey);
-    return bytes != null ? Optional.of(new String(bytes, StandardCharsets.UTF_8)) : Optional.empty();
+    var values = CachePayloadCodec.readStrings(inputFileScannerContext.getCacheContext(), cacheKey);
+    return values != null && values.size() == 1 ? Optional.of(values.get(0)) : Optional.empty();
   }
 
   protected static void writePackageNameToCache(InputFileScannerContext context, String packageName) {
     var cacheKey = cacheKey(context.getInputFile());
     try {
-      context.getCacheContext().getWriteCache().write(cacheKey, packageName.getBytes(StandardCharsets.UTF_8));
+      CachePayloadCodec.writeStrings(context.getCacheContext(), cacheKey, List.of(packageName));
     } catch (IllegalArgumentException e) {
       LOG.trace("Could not store data to cache key '{}': {}", cacheKey, e.getMessage());
     }
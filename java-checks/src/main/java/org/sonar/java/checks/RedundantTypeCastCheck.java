@@ -17,12 +17,15 @@
 package org.sonar.java.checks;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import org.sonar.check.Rule;
 import org.sonar.java.checks.helpers.QuickFixHelper;
 import org.sonar.java.model.ExpressionUtils;
 import org.sonar.java.model.JProblem;
 import org.sonar.java.model.JWarning;
+import org.sonar.java.model.JWarningsConsumer;
 import org.sonar.java.model.JavaTree;
 import org.sonar.java.reporting.AnalyzerMessage;
 import org.sonar.java.reporting.JavaQuickFix;
@@ -34,10 +37,15 @@ import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.TypeCastTree;
 
 @Rule(key = "S1905")
-public class RedundantTypeCastCheck extends IssuableSubscriptionVisitor {
+public class RedundantTypeCastCheck extends IssuableSubscriptionVisitor implements JWarningsConsumer {
 
   private List<JWarning> warnings;
 
+  @Override
+  public Set<JProblem.Type> requiredWarnings() {
+    return Collections.singleton(JProblem.Type.REDUNDANT_CAST);
+  }
+
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Arrays.asList(Tree.Kind.COMPILATION_UNIT, Tree.Kind.TYPE_CAST);
@@ -21,6 +21,7 @@ import org.sonar.java.checks.helpers.QuickFixHelper;
 import org.sonar.java.model.ExpressionUtils;
 import org.sonar.java.model.JProblem;
 import org.sonar.java.model.JWarning;
+import org.sonar.java.model.JWarningsConsumer;
 import org.sonar.java.model.JavaTree;
 import org.sonar.java.model.SyntacticEquivalence;
 import org.sonar.java.reporting.JavaQuickFix;
@@ -37,6 +38,7 @@ import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.VariableTree;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -44,11 +46,16 @@ import java.util.Set;
 import static org.sonar.java.reporting.AnalyzerMessage.textSpanBetween;
 
 @Rule(key = "S1656")
-public class SelfAssignementCheck extends IssuableSubscriptionVisitor {
+public class SelfAssignementCheck extends IssuableSubscriptionVisitor implements JWarningsConsumer {
 
   private static final String ISSUE_MESSAGE = "Remove or correct this useless self-assignment.";
   private final Set<JWarning> warnings = new HashSet<>();
 
+  @Override
+  public Set<JProblem.Type> requiredWarnings() {
+    return Collections.singleton(JProblem.Type.ASSIGNMENT_HAS_NO_EFFECT);
+  }
+
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Arrays.asList(Tree.Kind.COMPILATION_UNIT, Tree.Kind.ASSIGNMENT);
@@ -23,9 +23,11 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.sonar.check.Rule;
 import org.sonar.java.model.JProblem;
 import org.sonar.java.model.JWarning;
+import org.sonar.java.model.JWarningsConsumer;
 import org.sonar.java.model.JavaTree.CompilationUnitTreeImpl;
 import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
 import org.sonar.plugins.java.api.JavaFileScannerContext.Location;
@@ -39,11 +41,16 @@ import org.sonar.plugins.java.api.tree.TypeTree;
 import org.sonar.plugins.java.api.tree.UnionTypeTree;
 
 @Rule(key = "S4970")
-public class UnreachableCatchCheck extends IssuableSubscriptionVisitor {
+public class UnreachableCatchCheck extends IssuableSubscriptionVisitor implements JWarningsConsumer {
 
   private final List<JWarning> warnings = new ArrayList<>();
   private static final Comparator<Location> LOCATION_COMPARATOR = Comparator.comparing(loc -> Position.startOf(loc.syntaxNode));
 
+  @Override
+  public Set<JProblem.Type> requiredWarnings() {
+    return Collections.singleton(JProblem.Type.MASKED_CATCH);
+  }
+
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Arrays.asList(Tree.Kind.COMPILATION_UNIT, Tree.Kind.TRY_STATEMENT);
@@ -18,6 +18,7 @@ package org.sonar.java.checks;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -32,6 +33,7 @@ import org.sonar.java.checks.helpers.ExpressionsHelper;
 import org.sonar.java.checks.helpers.QuickFixHelper;
 import org.sonar.java.model.JProblem;
 import org.sonar.java.model.JWarning;
+import org.sonar.java.model.JWarningsConsumer;
 import org.sonar.java.model.JavaTree.CompilationUnitTreeImpl;
 import org.sonar.java.reporting.AnalyzerMessage;
 import org.sonar.java.reporting.JavaQuickFix;
@@ -48,7 +50,7 @@ import org.sonarsource.analyzer.commons.annotations.DeprecatedRuleKey;
 
 @DeprecatedRuleKey(ruleKey = "UselessImportCheck", repositoryKey = "squid")
 @Rule(key = "S1128")
-public class UselessImportCheck extends IssuableSubscriptionVisitor {
+public class UselessImportCheck extends IssuableSubscriptionVisitor implements JWarningsConsumer {
 
   private static final Pattern COMPILER_WARNING = Pattern.compile("The import ([$\\w]+(\\.[$\\w]+)*+) is never used");
   private static final Pattern NON_WORDS_CHARACTERS = Pattern.compile("\\W+");
@@ -60,6 +62,11 @@ public class UselessImportCheck extends IssuableSubscriptionVisitor {
   private final Set<String> duplicatedImports = new HashSet<>();
   private final Set<String> usedInJavaDoc = new HashSet<>();
 
+  @Override
+  public Set<JProblem.Type> requiredWarnings() {
+    return Collections.singleton(JProblem.Type.UNUSED_IMPORT);
+  }
+
   @Override
   public List<Tree.Kind> nodesToVisit() {
     return Arrays.asList(Tree.Kind.TRIVIA, Tree.Kind.COMPILATION_UNIT, Tree.Kind.PACKAGE, Tree.Kind.IMPORT);
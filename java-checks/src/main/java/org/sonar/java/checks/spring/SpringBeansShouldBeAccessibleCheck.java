@@ -16,7 +16,6 @@
  */
 package org.sonar.java.checks.spring;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -32,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.check.Rule;
+import org.sonar.java.caching.CachePayloadCodec;
 import org.sonar.java.model.DefaultJavaFileScannerContext;
 import org.sonar.java.model.DefaultModuleScannerContext;
 import org.sonar.java.reporting.AnalyzerMessage;
@@ -151,9 +151,8 @@ public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisi
 
   private static void writeToCache(InputFileScannerContext context, Collection<String> targetedPackages) {
     var cacheKey = cacheKey(context.getInputFile());
-    var data = String.join(";", targetedPackages).getBytes(StandardCharsets.UTF_8);
     try {
-      context.getCacheContext().getWriteCache().write(cacheKey, data);
+      CachePayloadCodec.writeStrings(context.getCacheContext(), cacheKey, new ArrayList<>(targetedPackages));
     } catch (IllegalArgumentException e) {
       LOG.trace("Tried to write multiple times to cache key '{}'. Ignoring writes after the first.", cacheKey);
     }
@@ -161,10 +160,10 @@ public class SpringBeansShouldBeAccessibleCheck extends IssuableSubscriptionVisi
 
   private static Optional<List<String>> readFromCache(InputFileScannerContext context) {
     var cacheKey = cacheKey(context.getInputFile());
-    var bytes = context.getCacheContext().getReadCache().readBytes(cacheKey);
-    if (bytes != null) {
+    var targetedPackages = CachePayloadCodec.readStrings(context.getCacheContext(), cacheKey);
+    if (targetedPackages != null) {
       context.getCacheContext().getWriteCache().copyFromPrevious(cacheKey);
-      return Optional.of(Arrays.asList(new String(bytes, StandardCharsets.UTF_8).split(";")));
+      return Optional.of(targetedPackages);
     } else {
       return Optional.empty();
     }
@@ -204,9 +204,10 @@ class SpringBeansShouldBeAccessibleCheckTest {
     byte[] cachedHash = FileHashingUtils.inputFileContentHash(cachedFile);
 
     doReturn(inputStream).when(localReadCache).read("java:S4605:targeted:" + cachedFile.key());
-    doReturn(true).when(localReadCache).contains(any());
+    doReturn(true).when(localReadCache).contains("java:S4605:targeted:" + cachedFile.key());
+    doReturn(true).when(localReadCache).contains("java:contentHash:MD5-v2:" + cachedFile.key());
     doReturn(new ByteArrayInputStream(cachedHash))
-      .when(localReadCache).read("java:contentHash:MD5:" + cachedFile.key());
+      .when(localReadCache).read("java:contentHash:MD5-v2:" + cachedFile.key());
 
     var specificVerifier = CheckVerifier.newVerifier()
       .withCache(localReadCache, new InternalWriteCache().bind(localReadCache))
@@ -25,6 +25,7 @@ import org.eclipse.jdt.internal.compiler.env.INameEnvironment;
 import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
 import org.eclipse.jdt.internal.compiler.lookup.AnnotationBinding;
 import org.eclipse.jdt.internal.compiler.lookup.BinaryTypeBinding;
+import org.eclipse.jdt.internal.compiler.lookup.Binding;
 import org.eclipse.jdt.internal.compiler.lookup.LookupEnvironment;
 import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
@@ -35,8 +36,6 @@ public final class ASTUtils {
 
   private static final Logger LOG = LoggerFactory.getLogger(ASTUtils.class);
 
-  private static final IAnnotationBinding[] NO_ANNOTATIONS = new IAnnotationBinding[0];
-
   private ASTUtils() {
   }
 
@@ -50,11 +49,20 @@ public final class ASTUtils {
 
   @Nullable
   public static ITypeBinding resolveType(AST ast, String name) {
+    return resolveType(ast, name, null);
+  }
+
+  /**
+   * @param cache compiler bindings already looked up in the lookup environment of the AST, or null to not share them
+   */
+  @Nullable
+  public static ITypeBinding resolveType(AST ast, String name, @Nullable LookupEnvironmentCache cache) {
     try {
       BindingResolver bindingResolver = ast.getBindingResolver();
-      ReferenceBinding referenceBinding = bindingResolver
-        .lookupEnvironment()
-        .getType(CharOperation.splitOn('.', name.toCharArray()));
+      LookupEnvironment lookupEnvironment = bindingResolver.lookupEnvironment();
+      ReferenceBinding referenceBinding = cache != null
+        ? cache.type(name, typeName -> lookupType(lookupEnvironment, typeName))
+        : lookupType(lookupEnvironment, name);
       return bindingResolver.getTypeBinding(referenceBinding);
     } catch (Exception e) {
       // exception on ECJ side when trying to resolve a Type, recover on null type
@@ -63,35 +71,52 @@ public final class ASTUtils {
     }
   }
 
+  @Nullable
+  private static ReferenceBinding lookupType(LookupEnvironment lookupEnvironment, String name) {
+    return lookupEnvironment.getType(CharOperation.splitOn('.', name.toCharArray()));
+  }
+
   public static IAnnotationBinding[] resolvePackageAnnotations(AST ast, String packageName) {
-    // See org.eclipse.jdt.core.dom.PackageBinding#getAnnotations()
+    return resolvePackageAnnotations(ast, packageName, null);
+  }
+
+  /**
+   * @param cache compiler bindings already looked up in the lookup environment of the AST, or null to not share them
+   */
+  public static IAnnotationBinding[] resolvePackageAnnotations(AST ast, String packageName, @Nullable LookupEnvironmentCache cache) {
     BindingResolver bindingResolver = ast.getBindingResolver();
     LookupEnvironment lookupEnvironment = bindingResolver.lookupEnvironment();
+    AnnotationBinding[] allInstances = cache != null
+      ? cache.packageAnnotations(packageName, name -> lookupPackageAnnotations(lookupEnvironment, name))
+      : lookupPackageAnnotations(lookupEnvironment, packageName);
+
+    IAnnotationBinding[] domInstances = new IAnnotationBinding[allInstances.length];
+    for (int i = 0; i < allInstances.length; i++) {
+      // FIXME can be null if annotation can not be resolved e.g. due to incomplete classpath
+      domInstances[i] = bindingResolver.getAnnotationInstance(allInstances[i]);
+    }
+    return domInstances;
+  }
+
+  private static AnnotationBinding[] lookupPackageAnnotations(LookupEnvironment lookupEnvironment, String packageName) {
+    // See org.eclipse.jdt.core.dom.PackageBinding#getAnnotations()
     NameEnvironmentAnswer answer = lookupEnvironment.nameEnvironment.findType(
       TypeConstants.PACKAGE_INFO_NAME,
       CharOperation.splitOn('.', packageName.toCharArray())
     );
     if (answer == null) {
-      return NO_ANNOTATIONS;
+      return Binding.NO_ANNOTATIONS;
     }
     IBinaryType type = answer.getBinaryType();
     if (type == null) {
       // Can happen for instance with ant, as ant only generates 'package-info.class'
       // when there is annotations in the package-info.java file.
-      return NO_ANNOTATIONS;
+      return Binding.NO_ANNOTATIONS;
     }
     IBinaryAnnotation[] binaryAnnotations = type.getAnnotations();
     AnnotationBinding[] binaryInstances =
       BinaryTypeBinding.createAnnotations(binaryAnnotations, lookupEnvironment, type.getMissingTypeNames());
-    AnnotationBinding[] allInstances =
-      AnnotationBinding.addStandardAnnotations(binaryInstances, type.getTagBits(), lookupEnvironment);
-
-    IAnnotationBinding[] domInstances = new IAnnotationBinding[allInstances.length];
-    for (int i = 0; i < allInstances.length; i++) {
-      // FIXME can be null if annotation can not be resolved e.g. due to incomplete classpath
-      domInstances[i] = bindingResolver.getAnnotationInstance(allInstances[i]);
-    }
-    return domInstances;
+    return AnnotationBinding.addStandardAnnotations(binaryInstances, type.getTagBits(), lookupEnvironment);
   }
 
   public static String signature(IMethodBinding methodBinding) {
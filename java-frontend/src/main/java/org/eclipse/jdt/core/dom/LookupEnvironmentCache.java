@@ -0,0 +1,46 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.eclipse.jdt.core.dom;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.eclipse.jdt.internal.compiler.lookup.AnnotationBinding;
+import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
+
+/**
+ * Compiler bindings looked up by name in a lookup environment. They do not depend on the compilation unit, so they can be shared
+ * by all the ASTs created in the same environment, for example the files of an ECJ batch. DOM bindings are still obtained from
+ * the binding resolver of each AST.
+ */
+public final class LookupEnvironmentCache {
+
+  private final Map<String, Optional<ReferenceBinding>> types = new HashMap<>();
+  private final Map<String, AnnotationBinding[]> packageAnnotations = new HashMap<>();
+
+  @Nullable
+  synchronized ReferenceBinding type(String name, Function<String, ReferenceBinding> lookup) {
+    return types.computeIfAbsent(name, typeName -> Optional.ofNullable(lookup.apply(typeName))).orElse(null);
+  }
+
+  synchronized AnnotationBinding[] packageAnnotations(String packageName, Function<String, AnnotationBinding[]> lookup) {
+    return packageAnnotations.computeIfAbsent(packageName, lookup);
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import com.sun.management.GcInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.java.annotations.VisibleForTesting;
+
+/**
+ * Computes the size of the next ECJ batch from the heap occupancy observed after the last garbage collection and from
+ * the duration of the last batch. Batches grow while there is plenty of heap headroom and shrink when the heap gets close to full.
+ * Every decision is logged in debug, and {@link #logSummary()} logs how many times the size has been changed.
+ */
+public class AdaptiveBatchSize {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveBatchSize.class);
+
+  @VisibleForTesting
+  static final double LOW_HEAP_OCCUPANCY = 0.4;
+  @VisibleForTesting
+  static final double HIGH_HEAP_OCCUPANCY = 0.75;
+  @VisibleForTesting
+  static final long MAX_BATCH_DURATION_NANOS = TimeUnit.MINUTES.toNanos(2);
+  private static final int SCALE_FACTOR = 4;
+
+  private final long minBatchSizeInBytes;
+  private final long maxBatchSizeInBytes;
+  private final DoubleSupplier heapOccupancyAfterGc;
+  private long batchSizeInBytes;
+  private int increaseCount = 0;
+  private int decreaseCount = 0;
+  private int keepCount = 0;
+
+  public AdaptiveBatchSize(long initialBatchSizeInBytes) {
+    this(initialBatchSizeInBytes, AdaptiveBatchSize::heapOccupancyAfterLastGc);
+  }
+
+  @VisibleForTesting
+  AdaptiveBatchSize(long initialBatchSizeInBytes, DoubleSupplier heapOccupancyAfterGc) {
+    this.batchSizeInBytes = initialBatchSizeInBytes;
+    this.minBatchSizeInBytes = initialBatchSizeInBytes / SCALE_FACTOR;
+    this.maxBatchSizeInBytes = initialBatchSizeInBytes * SCALE_FACTOR;
+    this.heapOccupancyAfterGc = heapOccupancyAfterGc;
+  }
+
+  public long batchSizeInBytes() {
+    return batchSizeInBytes;
+  }
+
+  /**
+   * When batches are parsed by several threads, the duration only covers the time spent by the analysis thread to wait for the last
+   * batch and to analyze it, and the new size only applies to the batches which have not already been submitted to the parser threads.
+   *
+   * @param lastBatchDurationNanos time spent to parse and analyze the last batch
+   * @return the size to use for the next batch
+   */
+  public long nextBatchSizeInBytes(long lastBatchDurationNanos) {
+    double heapOccupancy = heapOccupancyAfterGc.getAsDouble();
+    String decision;
+    if (heapOccupancy > HIGH_HEAP_OCCUPANCY) {
+      decision = "Decrease";
+      decreaseCount++;
+      batchSizeInBytes = Math.max(minBatchSizeInBytes, batchSizeInBytes / 2);
+    } else if (heapOccupancy < LOW_HEAP_OCCUPANCY && lastBatchDurationNanos < MAX_BATCH_DURATION_NANOS) {
+      decision = "Increase";
+      increaseCount++;
+      batchSizeInBytes = Math.min(maxBatchSizeInBytes, batchSizeInBytes + batchSizeInBytes / 2);
+    } else {
+      decision = "Keep";
+      keepCount++;
+    }
+    LOG.debug("Heap occupancy after GC: {}%, last batch took {} ms. Next batch size: {} KB ({}).",
+      Math.round(heapOccupancy * 100), TimeUnit.NANOSECONDS.toMillis(lastBatchDurationNanos), batchSizeInBytes / 1_000L, decision);
+    return batchSizeInBytes;
+  }
+
+  public void logSummary() {
+    LOG.info("Adaptive batch size: {} increase(s), {} decrease(s), {} unchanged. Last batch size: {} KB.",
+      increaseCount, decreaseCount, keepCount, batchSizeInBytes / 1_000L);
+  }
+
+  /**
+   * @return the ratio between the heap used right after the most recent garbage collection, young or full, and the maximum heap.
+   * Falls back on the current heap usage when the JVM does not provide information about its last garbage collection.
+   */
+  @VisibleForTesting
+  static double heapOccupancyAfterLastGc() {
+    return heapOccupancyAfterLastGc(ManagementFactory.getMemoryPoolMXBeans(), ManagementFactory.getGarbageCollectorMXBeans(),
+      ManagementFactory.getMemoryMXBean().getHeapMemoryUsage());
+  }
+
+  /**
+   * The usage of each heap pool is read from the memory usage recorded by the most recent garbage collection. The collection usage of the
+   * pools is not used: the old generation pool of G1 only updates it on mixed and full collections, so it is most of the time close to 0
+   * while the old generation fills up.
+   */
+  @VisibleForTesting
+  static double heapOccupancyAfterLastGc(List<MemoryPoolMXBean> pools, List<GarbageCollectorMXBean> collectors, MemoryUsage heapUsage) {
+    long max = heapUsage.getMax() > 0L ? heapUsage.getMax() : heapUsage.getCommitted();
+    if (max <= 0L) {
+      return 0.0;
+    }
+    GcInfo lastGc = lastGcInfo(collectors);
+    if (lastGc == null) {
+      return heapUsage.getUsed() / (double) max;
+    }
+    Set<String> heapPools = pools.stream()
+      .filter(pool -> pool.getType() == MemoryType.HEAP)
+      .map(MemoryPoolMXBean::getName)
+      .collect(Collectors.toSet());
+    long used = 0L;
+    for (Map.Entry<String, MemoryUsage> poolUsage : lastGc.getMemoryUsageAfterGc().entrySet()) {
+      if (heapPools.contains(poolUsage.getKey())) {
+        used += poolUsage.getValue().getUsed();
+      }
+    }
+    return Math.min(1.0, used / (double) max);
+  }
+
+  @CheckForNull
+  private static GcInfo lastGcInfo(List<GarbageCollectorMXBean> collectors) {
+    GcInfo lastGc = null;
+    for (GarbageCollectorMXBean collector : collectors) {
+      GcInfo gcInfo = collector instanceof com.sun.management.GarbageCollectorMXBean gcWithInfo ? gcWithInfo.getLastGcInfo() : null;
+      if (gcInfo != null && (lastGc == null || gcInfo.getEndTime() > lastGc.getEndTime())) {
+        lastGc = gcInfo;
+      }
+    }
+    return lastGc;
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads of the executors of the analyzer. They are daemon threads, so that they never prevent the JVM from exiting,
+ * and they are numbered after the given name.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+  private final String name;
+  private final AtomicInteger threadCount = new AtomicInteger();
+
+  public DaemonThreadFactory(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileConstants;
+import org.eclipse.jdt.internal.compiler.parser.Scanner;
+import org.eclipse.jdt.internal.compiler.parser.TerminalTokens;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.annotations.VisibleForTesting;
+import org.sonarsource.performance.measure.PerformanceMeasure;
+
+/**
+ * Orders files so that files referencing each other end up next to each other, and therefore in the same ECJ batch.
+ * <p>
+ * Only the header of each file is read and tokenized, up to the first type declaration, to collect its package and its imports.
+ * Imports of nested types are attributed to the package of their top-level type. Files are grouped by package, and packages are then walked depth first, always moving to the package sharing the largest
+ * number of imports with the current one. The original order is kept between files of the same package.
+ */
+public class DependencyClusteredOrder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DependencyClusteredOrder.class);
+
+  @VisibleForTesting
+  static final int MAX_HEADER_SIZE = 65_536;
+
+  private DependencyClusteredOrder() {
+  }
+
+  public static List<InputFile> order(List<InputFile> inputFiles) {
+    PerformanceMeasure.Duration duration = PerformanceMeasure.start("DependencyClusteredOrder");
+    Map<String, List<InputFile>> filesByPackage = new LinkedHashMap<>();
+    Map<String, Map<String, Integer>> packageLinks = new HashMap<>();
+    List<FileHeader> headers = new ArrayList<>(inputFiles.size());
+    for (InputFile inputFile : inputFiles) {
+      FileHeader header = readHeader(inputFile);
+      headers.add(header);
+      filesByPackage.computeIfAbsent(header.packageName, k -> new ArrayList<>()).add(inputFile);
+    }
+    for (FileHeader header : headers) {
+      for (String importedName : header.importedNames) {
+        String importedPackage = enclosingPackage(importedName, filesByPackage.keySet());
+        if (!importedPackage.equals(header.packageName) && filesByPackage.containsKey(importedPackage)) {
+          packageLinks.computeIfAbsent(header.packageName, k -> new TreeMap<>()).merge(importedPackage, 1, Integer::sum);
+          packageLinks.computeIfAbsent(importedPackage, k -> new TreeMap<>()).merge(header.packageName, 1, Integer::sum);
+        }
+      }
+    }
+
+    List<InputFile> orderedFiles = new ArrayList<>(inputFiles.size());
+    Set<String> visitedPackages = new HashSet<>();
+    filesByPackage.keySet().stream().sorted().forEach(packageName -> {
+      Deque<String> toVisit = new ArrayDeque<>();
+      toVisit.push(packageName);
+      while (!toVisit.isEmpty()) {
+        String current = toVisit.pop();
+        if (visitedPackages.add(current)) {
+          orderedFiles.addAll(filesByPackage.get(current));
+          packageLinks.getOrDefault(current, Map.of()).entrySet().stream()
+            // pushed in ascending order of links, so that the most linked package is visited first
+            .sorted(Map.Entry.<String, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+            .map(Map.Entry::getKey)
+            .filter(linked -> !visitedPackages.contains(linked))
+            .forEach(toVisit::push);
+        }
+      }
+    });
+    duration.stop();
+    return orderedFiles;
+  }
+
+  /**
+   * Imports of nested types, like 'import a.b.Outer.Inner;', are read as 'a.b.Outer'. Their trailing type names are dropped until
+   * reaching one of the analyzed packages.
+   */
+  private static String enclosingPackage(String importedName, Set<String> packageNames) {
+    String name = importedName;
+    int lastDot = name.lastIndexOf('.');
+    while (!packageNames.contains(name) && lastDot > 0 && Character.isUpperCase(name.charAt(lastDot + 1))) {
+      name = name.substring(0, lastDot);
+      lastDot = name.lastIndexOf('.');
+    }
+    return name;
+  }
+
+  /**
+   * Only the beginning of the file is read, and tokenized once, so that the ordering does not load the whole content of every file
+   * which is read again by the parser. Imports beyond {@link #MAX_HEADER_SIZE} characters are ignored.
+   */
+  @VisibleForTesting
+  static FileHeader readHeader(InputFile inputFile) {
+    try (Reader reader = new InputStreamReader(inputFile.inputStream(), inputFile.charset())) {
+      char[] buffer = new char[MAX_HEADER_SIZE];
+      int length = 0;
+      int read = 0;
+      while (length < buffer.length && read != -1) {
+        read = reader.read(buffer, length, buffer.length - length);
+        length += Math.max(0, read);
+      }
+      return readHeader(Arrays.copyOf(buffer, length));
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Unable to read the package and imports of {}: {}", inputFile, e.getMessage());
+      return new FileHeader("", Set.of());
+    }
+  }
+
+  @VisibleForTesting
+  static FileHeader readHeader(String source) {
+    return readHeader(source.toCharArray());
+  }
+
+  private static FileHeader readHeader(char[] source) {
+    Scanner scanner = new Scanner(false, false, false, ClassFileConstants.getLatestJDKLevel(), null, null, false);
+    scanner.setSource(source);
+    String packageName = "";
+    Set<String> importedNames = new HashSet<>();
+    try {
+      int token = scanner.getNextToken();
+      while (token != TerminalTokens.TokenNameEOF && !isTypeDeclarationStart(token)) {
+        if (token == TerminalTokens.TokenNamepackage) {
+          packageName = String.join(".", qualifiedName(scanner, false));
+        } else if (token == TerminalTokens.TokenNameimport) {
+          importedNames.add(importedName(scanner));
+        }
+        token = scanner.getNextToken();
+      }
+    } catch (InvalidInputException e) {
+      // the header is incomplete or truncated, keep what has been collected so far
+    }
+    return new FileHeader(packageName, importedNames);
+  }
+
+  private static boolean isTypeDeclarationStart(int token) {
+    return token == TerminalTokens.TokenNameclass
+      || token == TerminalTokens.TokenNameinterface
+      || token == TerminalTokens.TokenNameenum
+      || token == TerminalTokens.TokenNameRestrictedIdentifierrecord
+      // any type body starts with a brace, even when the declaration keyword has not been recognized
+      || token == TerminalTokens.TokenNameLBRACE;
+  }
+
+  private static String importedName(Scanner scanner) throws InvalidInputException {
+    List<String> segments = qualifiedName(scanner, true);
+    boolean isStatic = !segments.isEmpty() && "static".equals(segments.get(0));
+    if (isStatic) {
+      segments = segments.subList(1, segments.size());
+    }
+    // 'import a.b.C;' and 'import a.b.*;' reference package 'a.b', 'import static a.b.C.m;' and 'import static a.b.C.*;' as well
+    int packageSegments = segments.size() - (isStatic ? 2 : 1);
+    return String.join(".", segments.subList(0, Math.max(0, packageSegments)));
+  }
+
+  private static List<String> qualifiedName(Scanner scanner, boolean acceptStaticModifier) throws InvalidInputException {
+    List<String> segments = new ArrayList<>();
+    int token = scanner.getNextToken();
+    while (token != TerminalTokens.TokenNameSEMICOLON && token != TerminalTokens.TokenNameEOF) {
+      if (token == TerminalTokens.TokenNameIdentifier || token == TerminalTokens.TokenNameMULTIPLY
+        || (acceptStaticModifier && token == TerminalTokens.TokenNamestatic)) {
+        segments.add(new String(scanner.getCurrentTokenSource()));
+      }
+      token = scanner.getNextToken();
+    }
+    return segments;
+  }
+
+  /**
+   * @param importedNames the packages of the imported types and members, or their enclosing types when they are nested
+   */
+  @VisibleForTesting
+  record FileHeader(String packageName, Set<String> importedNames) {
+  }
+}
@@ -17,15 +17,22 @@
 package org.sonar.java;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -42,6 +49,7 @@ import org.sonar.java.collections.CollectionUtils;
 import org.sonar.java.exceptions.ApiMismatchException;
 import org.sonar.java.filters.SonarJavaIssueFilter;
 import org.sonar.java.model.JParserConfig;
+import org.sonar.java.model.JProblem;
 import org.sonar.java.model.VisitorsBridge;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaResourceLocator;
@@ -125,6 +133,9 @@ public class JavaFrontend {
   }
 
   public void scan(Iterable<InputFile> sourceFiles, Iterable<InputFile> testFiles, Iterable<? extends InputFile> generatedFiles) {
+    if (isCacheEnabled()) {
+      precomputeContentHashes(sourceFiles, testFiles);
+    }
     if (canOptimizeScanning()) {
       long successfullyScanned = 0L;
       long total = 0L;
@@ -166,6 +177,12 @@ public class JavaFrontend {
       scanAsBatch(new DefaultBatchModeContext(astScannerForTests, "Test"), testFiles);
       scanAsBatch(new DefaultBatchModeContext(astScannerForGeneratedFiles, "Generated"), generatedFiles);
     }
+    if (isCacheEnabled()) {
+      sonarComponents.saveCaches();
+    }
+    if (sonarComponents != null) {
+      sonarComponents.writeRuleCostReport();
+    }
   }
 
   /**
@@ -216,12 +233,111 @@ public class JavaFrontend {
       scanBatch(context, allInputFiles, analysisProgress);
     } else {
       long batchSize = batchModeSizeInKB * 1_000L;
-      LOG.info("{} with batch size {} KB.", logUsingBatch, batchModeSizeInKB);
-      BatchGenerator generator = new BatchGenerator(allInputFiles.iterator(), batchSize);
+      int analysisThreads = getAnalysisThreads();
+      if (analysisThreads > 1) {
+        // Up to one batch per thread is in memory at once, the configured size is split between them to keep the same heap usage
+        batchSize /= analysisThreads;
+        LOG.info("{} with batch size {} KB, split into batches of {} KB parsed by {} threads.", logUsingBatch, batchModeSizeInKB,
+          batchSize / 1_000L, analysisThreads);
+      } else {
+        LOG.info("{} with batch size {} KB.", logUsingBatch, batchModeSizeInKB);
+      }
+      if (isBatchClusteringEnabled()) {
+        LOG.info("Files will be grouped into batches according to their packages and imports.");
+      }
+      if (isAdaptiveBatchSizeEnabled()) {
+        LOG.info("The size of the ECJ batches will be adjusted to the available memory.");
+      }
+      scanInBatches(context, allInputFiles, batchSize, analysisProgress, analysisThreads);
+    }
+  }
+
+  private void scanInBatches(BatchModeContext context, List<InputFile> inputFiles, long batchSize,
+    AnalysisProgress analysisProgress, int analysisThreads) {
+    List<InputFile> orderedInputFiles = isBatchClusteringEnabled() ? DependencyClusteredOrder.order(inputFiles) : inputFiles;
+    BatchGenerator generator = new BatchGenerator(orderedInputFiles.iterator(), batchSize);
+    AdaptiveBatchSize adaptiveBatchSize = isAdaptiveBatchSizeEnabled() ? new AdaptiveBatchSize(batchSize) : null;
+    if (analysisThreads > 1) {
+      scanInParallelBatches(context, generator, adaptiveBatchSize, analysisProgress, analysisThreads);
+    } else {
       while (generator.hasNext()) {
         List<InputFile> batch = generator.next();
+        long batchStart = System.nanoTime();
         scanBatch(context, batch, analysisProgress);
+        adjustBatchSize(generator, adaptiveBatchSize, System.nanoTime() - batchStart);
+      }
+    }
+    if (adaptiveBatchSize != null) {
+      adaptiveBatchSize.logSummary();
+    }
+  }
+
+  private static void adjustBatchSize(BatchGenerator generator, @Nullable AdaptiveBatchSize adaptiveBatchSize, long lastBatchDurationNanos) {
+    if (adaptiveBatchSize != null && generator.hasNext()) {
+      generator.setBatchSizeInBytes(adaptiveBatchSize.nextBatchSizeInBytes(lastBatchDurationNanos));
+    }
+  }
+
+  /**
+   * Runs ECJ on up to {@code analysisThreads} batches ahead of their analysis, each batch using its own ECJ environment. Their files are
+   * then converted and analyzed on the calling thread, in the order in which the batches have been generated. Checks, performance
+   * measures and the progress of the analysis are therefore never accessed concurrently, and issues, measures and end of analysis
+   * callbacks are the same as in sequential mode. The "ParseAsBatch" measure covers the time spent waiting for ECJ and analyzing each batch,
+   * which is also the duration given to the adaptive batch size. A new batch size only applies to the batches generated afterwards, up to
+   * {@code analysisThreads} batches already submitted keep the size they have been generated with.
+   */
+  private void scanInParallelBatches(BatchModeContext context, BatchGenerator generator, @Nullable AdaptiveBatchSize adaptiveBatchSize,
+    AnalysisProgress analysisProgress, int analysisThreads) {
+    ExecutorService executor = Executors.newFixedThreadPool(analysisThreads, new DaemonThreadFactory("sonar-java-batch-parser"));
+    Deque<Future<JParserConfig.ResolvedBatch>> pendingBatches = new ArrayDeque<>();
+    try {
+      while (generator.hasNext() || !pendingBatches.isEmpty()) {
+        while (generator.hasNext() && pendingBatches.size() < analysisThreads) {
+          List<InputFile> batch = generator.next();
+          pendingBatches.add(executor.submit(() -> resolveBatch(context, batch)));
+        }
+        long batchStart = System.nanoTime();
+        Duration batchDuration = PerformanceMeasure.start("ParseAsBatch");
+        analyzeResolvedBatch(context, awaitResolvedBatch(pendingBatches.removeFirst()), analysisProgress);
+        batchDuration.stop();
+        adjustBatchSize(generator, adaptiveBatchSize, System.nanoTime() - batchStart);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private JParserConfig.ResolvedBatch resolveBatch(BatchModeContext context, List<InputFile> batchFiles) {
+    boolean shouldIgnoreUnnamedModuleForSplitPackage = sonarComponents != null && sonarComponents.shouldIgnoreUnnamedModuleForSplitPackage();
+    return JParserConfig.createBatch(javaVersion, context.getClasspath(), shouldIgnoreUnnamedModuleForSplitPackage)
+      .setEnabledWarnings(context.requiredWarnings())
+      .resolve(batchFiles, this::analysisCancelled);
+  }
+
+  private void analyzeResolvedBatch(BatchModeContext context, JParserConfig.ResolvedBatch batch, AnalysisProgress analysisProgress) {
+    analysisProgress.startBatch(batch.size());
+    Set<Runnable> environmentsCleaners = new HashSet<>();
+    batch.analyze(this::analysisCancelled, analysisProgress, (input, result) -> scanAsBatchCallback(input, result, context, environmentsCleaners));
+    // Due to a bug in ECJ, JAR files remain locked after the analysis on Windows, we unlock them manually, at the end of each batches. See SONARJAVA-3609.
+    environmentsCleaners.forEach(Runnable::run);
+    analysisProgress.endBatch();
+  }
+
+  private static JParserConfig.ResolvedBatch awaitResolvedBatch(Future<JParserConfig.ResolvedBatch> resolvedBatch) {
+    try {
+      return resolvedBatch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Analysis cancelled", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
       }
+      if (cause instanceof Error error) {
+        throw error;
+      }
+      throw new AnalysisException(BATCH_ERROR_MESSAGE, cause);
     }
   }
 
@@ -231,6 +347,7 @@ public class JavaFrontend {
     boolean shouldIgnoreUnnamedModuleForSplitPackage = sonarComponents!= null && sonarComponents.shouldIgnoreUnnamedModuleForSplitPackage();
     JParserConfig.Mode.BATCH
       .create(javaVersion, context.getClasspath(), shouldIgnoreUnnamedModuleForSplitPackage)
+      .setEnabledWarnings(context.requiredWarnings())
       .parse(batchFiles, this::analysisCancelled, analysisProgress, (input, result) -> scanAsBatchCallback(input, result, context, environmentsCleaners));
     // Due to a bug in ECJ, JAR files remain locked after the analysis on Windows, we unlock them manually, at the end of each batches. See SONARJAVA-3609.
     environmentsCleaners.forEach(Runnable::run);
@@ -254,6 +371,8 @@ public class JavaFrontend {
 
     List<File> getClasspath();
 
+    Set<JProblem.Type> requiredWarnings();
+
     JavaAstScanner selectScanner(InputFile input);
 
     void endOfAnalysis();
@@ -276,6 +395,14 @@ public class JavaFrontend {
       return globalClasspath;
     }
 
+    @Override
+    public Set<JProblem.Type> requiredWarnings() {
+      Set<JProblem.Type> requiredWarnings = EnumSet.noneOf(JProblem.Type.class);
+      requiredWarnings.addAll(astScanner.requiredWarnings());
+      requiredWarnings.addAll(astScannerForTests.requiredWarnings());
+      return requiredWarnings;
+    }
+
     @Override
     public JavaAstScanner selectScanner(InputFile input) {
       return input.type() == InputFile.Type.TEST ? astScannerForTests : astScanner;
@@ -314,6 +441,11 @@ public class JavaFrontend {
       return scanner.getClasspath();
     }
 
+    @Override
+    public Set<JProblem.Type> requiredWarnings() {
+      return scanner.requiredWarnings();
+    }
+
     @Override
     public JavaAstScanner selectScanner(InputFile input) {
       return scanner;
@@ -327,7 +459,7 @@ public class JavaFrontend {
   }
 
   static class BatchGenerator {
-    public final long batchSizeInBytes;
+    private long batchSizeInBytes;
     private final Iterator<InputFile> source;
     private InputFile buffer = null;
 
@@ -337,6 +469,17 @@ public class JavaFrontend {
       this.batchSizeInBytes = batchSizeInBytes;
     }
 
+    public long batchSizeInBytes() {
+      return batchSizeInBytes;
+    }
+
+    /**
+     * Changes the size threshold of the batches returned by the next calls to {@link #next()}.
+     */
+    public void setBatchSizeInBytes(long batchSizeInBytes) {
+      this.batchSizeInBytes = batchSizeInBytes;
+    }
+
     public boolean hasNext() {
       return buffer != null || source.hasNext();
     }
@@ -383,11 +526,39 @@ public class JavaFrontend {
     return sonarComponents != null && sonarComponents.isAutoScan();
   }
 
+  @VisibleForTesting
+  boolean isBatchClusteringEnabled() {
+    return sonarComponents != null && sonarComponents.isBatchClusteringEnabled();
+  }
+
+  @VisibleForTesting
+  boolean isAdaptiveBatchSizeEnabled() {
+    return sonarComponents != null && sonarComponents.isAdaptiveBatchSizeEnabled();
+  }
+
+  @VisibleForTesting
+  int getAnalysisThreads() {
+    return sonarComponents == null ? 1 : sonarComponents.getAnalysisThreads();
+  }
+
   @VisibleForTesting
   long getBatchModeSizeInKB() {
     return sonarComponents == null ? -1L : sonarComponents.getBatchModeSizeInKB();
   }
 
+  /**
+   * The content hash of every file is needed to decide whether it can be skipped and to fill the next cache. They are
+   * computed in parallel before the files are scanned one after the other.
+   */
+  private void precomputeContentHashes(Iterable<InputFile> sourceFiles, Iterable<InputFile> testFiles) {
+    Duration duration = PerformanceMeasure.start("ContentHashes");
+    List<InputFile> files = new ArrayList<>();
+    sourceFiles.forEach(files::add);
+    testFiles.forEach(files::add);
+    sonarComponents.precomputeContentHashes(files);
+    duration.stop();
+  }
+
   private boolean isCacheEnabled() {
     return sonarComponents != null && CacheContextImpl.of(sonarComponents).isCacheEnabled();
   }
@@ -0,0 +1,201 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.plugins.java.api.JavaCheck;
+
+/**
+ * Aggregates, for each rule, the CPU time and the bytes allocated by its scanner, the tree nodes dispatched to it, the issues it
+ * reported and the files on which it was skipped thanks to the cache. The report is written in the work directory, both as JSON and in
+ * the Prometheus text format.
+ * <br />
+ * Subscription visitors are only measured on the files sampled for their performance measure (see
+ * {@link SonarComponents#SONAR_VISITOR_TIMING_SAMPLING_KEY}), and their CPU time and allocated bytes are extrapolated to all the files.
+ * <br />
+ * Issues are counted when the rule reports them, before the issue filters (@SuppressWarnings, NOSONAR, generated code, exclusions...)
+ * are applied by the scanner, which is why they are reported as "reportedIssues".
+ */
+public class RuleCostReport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RuleCostReport.class);
+
+  public static final String JSON_FILE_NAME = "sonar.java.rule-costs.json";
+  public static final String PROMETHEUS_FILE_NAME = "sonar.java.rule-costs.prom";
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final Function<JavaCheck, String> ruleKeyResolver;
+  private final Map<JavaCheck, RuleCost> costsByCheck = new ConcurrentHashMap<>();
+  private final Map<String, RuleCost> costsByRuleKey = new ConcurrentHashMap<>();
+
+  /**
+   * @param ruleKeyResolver provides the key of the rule implemented by a check, or the name of the scanner when it does not implement a rule
+   */
+  public RuleCostReport(Function<JavaCheck, String> ruleKeyResolver) {
+    this.ruleKeyResolver = ruleKeyResolver;
+  }
+
+  /**
+   * @return the CPU time of the current thread, in nanoseconds, or 0 when it cannot be measured
+   */
+  public static long currentThreadCpuTime() {
+    return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0L;
+  }
+
+  /**
+   * @return the number of bytes allocated by the current thread since it started, or 0 when it cannot be measured
+   */
+  public static long currentThreadAllocatedBytes() {
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean threadMXBean && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+      return threadMXBean.getCurrentThreadAllocatedBytes();
+    }
+    return 0L;
+  }
+
+  public void addCost(JavaCheck check, long cpuNanos, long allocatedBytes) {
+    RuleCost cost = costOf(check);
+    cost.cpuNanos.add(cpuNanos);
+    cost.allocatedBytes.add(allocatedBytes);
+  }
+
+  /**
+   * Adds a cost measured on a sampled file only, which is extrapolated when the report is written.
+   */
+  public void addSampledCost(JavaCheck check, long cpuNanos, long allocatedBytes) {
+    RuleCost cost = costOf(check);
+    cost.sampledCpuNanos.add(cpuNanos);
+    cost.sampledAllocatedBytes.add(allocatedBytes);
+  }
+
+  public void addVisitedNodes(JavaCheck check, long nodes) {
+    costOf(check).visitedNodes.add(nodes);
+  }
+
+  public void addSkippedFile(JavaCheck check) {
+    costOf(check).skippedFiles.increment();
+  }
+
+  public void addIssue(String ruleKey) {
+    costsByRuleKey.computeIfAbsent(ruleKey, key -> new RuleCost()).issues.increment();
+  }
+
+  private RuleCost costOf(JavaCheck check) {
+    return costsByCheck.computeIfAbsent(check, c -> costsByRuleKey.computeIfAbsent(ruleKeyResolver.apply(c), key -> new RuleCost()));
+  }
+
+  /**
+   * Writes the JSON and Prometheus reports in the given directory.
+   *
+   * @param sampledCostFactor the factor by which the costs measured on sampled files only are multiplied
+   */
+  public void write(Path directory, double sampledCostFactor) {
+    Map<String, long[]> values = values(sampledCostFactor);
+    try {
+      Files.writeString(directory.resolve(JSON_FILE_NAME), toJson(values), StandardCharsets.UTF_8);
+      Files.writeString(directory.resolve(PROMETHEUS_FILE_NAME), toPrometheus(values), StandardCharsets.UTF_8);
+      LOG.debug("Rule cost report written for {} rules in {}", values.size(), directory);
+    } catch (IOException e) {
+      LOG.warn("Unable to write the rule cost report: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * @return for each rule key, in order, the CPU time, allocated bytes, visited nodes, reported issues and skipped files
+   */
+  @VisibleForTesting
+  Map<String, long[]> values(double sampledCostFactor) {
+    Map<String, long[]> values = new TreeMap<>();
+    costsByRuleKey.forEach((ruleKey, cost) -> values.put(ruleKey, new long[] {
+      cost.cpuNanos.sum() + Math.round(cost.sampledCpuNanos.sum() * sampledCostFactor),
+      cost.allocatedBytes.sum() + Math.round(cost.sampledAllocatedBytes.sum() * sampledCostFactor),
+      cost.visitedNodes.sum(),
+      cost.issues.sum(),
+      cost.skippedFiles.sum()
+    }));
+    return values;
+  }
+
+  @VisibleForTesting
+  static String toJson(Map<String, long[]> values) {
+    StringBuilder json = new StringBuilder("{\n  \"rules\": [");
+    String separator = "\n";
+    for (Map.Entry<String, long[]> entry : values.entrySet()) {
+      long[] value = entry.getValue();
+      json.append(separator)
+        .append("    {\"rule\": \"").append(entry.getKey().replace("\\", "\\\\").replace("\"", "\\\""))
+        .append("\", \"cpuNanos\": ").append(value[0])
+        .append(", \"allocatedBytes\": ").append(value[1])
+        .append(", \"visitedNodes\": ").append(value[2])
+        .append(", \"reportedIssues\": ").append(value[3])
+        .append(", \"skippedFiles\": ").append(value[4])
+        .append("}");
+      separator = ",\n";
+    }
+    return json.append("\n  ]\n}\n").toString();
+  }
+
+  @VisibleForTesting
+  static String toPrometheus(Map<String, long[]> values) {
+    StringBuilder metrics = new StringBuilder();
+    appendMetric(metrics, values, "sonar_java_rule_cpu_seconds_total", "CPU time spent in the rule.", 0, 1e-9);
+    appendMetric(metrics, values, "sonar_java_rule_allocated_bytes_total", "Bytes allocated by the rule.", 1, 1);
+    appendMetric(metrics, values, "sonar_java_rule_visited_nodes_total", "Tree nodes dispatched to the rule.", 2, 1);
+    appendMetric(metrics, values, "sonar_java_rule_reported_issues_total", "Issues reported by the rule, before the issue filters are applied.",
+      3, 1);
+    appendMetric(metrics, values, "sonar_java_rule_skipped_files_total", "Files on which the rule was skipped thanks to the cache.", 4, 1);
+    return metrics.toString();
+  }
+
+  private static void appendMetric(StringBuilder metrics, Map<String, long[]> values, String name, String help, int index, double scale) {
+    metrics.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    metrics.append("# TYPE ").append(name).append(" counter\n");
+    values.forEach((ruleKey, value) -> {
+      metrics.append(name).append("{rule=\"").append(ruleKey.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"} ");
+      if (scale == 1) {
+        metrics.append(value[index]);
+      } else {
+        metrics.append(String.format(Locale.ROOT, "%.9f", value[index] * scale));
+      }
+      metrics.append('\n');
+    });
+  }
+
+  private static class RuleCost {
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder sampledCpuNanos = new LongAdder();
+    private final LongAdder sampledAllocatedBytes = new LongAdder();
+    private final LongAdder visitedNodes = new LongAdder();
+    private final LongAdder issues = new LongAdder();
+    private final LongAdder skippedFiles = new LongAdder();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.java.annotations.VisibleForTesting;
+import org.sonarsource.performance.measure.DurationMeasure;
+import org.sonarsource.performance.measure.DurationMeasureFiles;
+
+/**
+ * Extrapolates the per-visitor measures recorded on the sampled files only (see {@link SonarComponents#SONAR_VISITOR_TIMING_SAMPLING_KEY})
+ * to all the analyzed files, so that the performance measure file keeps its format and reports the estimated cost of each visitor.
+ */
+public final class SampledPerformanceMeasure {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SampledPerformanceMeasure.class);
+
+  /**
+   * Name of the measure wrapping the subscription visitors, which is recorded on every file while its children are only recorded on the
+   * sampled files.
+   */
+  @VisibleForTesting
+  static final String SAMPLED_MEASURES_PARENT = "IssuableSubscriptionVisitors";
+
+  private SampledPerformanceMeasure() {
+  }
+
+  /**
+   * Deletes the measures left by a previous analysis which did not complete, so that they are neither added to the measures of the
+   * current analysis nor extrapolated again.
+   */
+  public static void deleteAnalysisMeasureFile(Path analysisMeasureFile) {
+    deleteQuietly(analysisMeasureFile);
+  }
+
+  /**
+   * Extrapolates the measures of the current analysis, and merges them into the performance measure file, which may already contain the
+   * measures of previous analyses or other modules. These ones have already been extrapolated and are kept as is.
+   *
+   * @param analysisMeasureFile measures of the current analysis only, deleted once merged
+   * @param performanceMeasureFile measures shared by the analyses
+   */
+  public static void extrapolateAndMerge(Path analysisMeasureFile, Path performanceMeasureFile, double factor) {
+    if (!Files.isRegularFile(analysisMeasureFile)) {
+      return;
+    }
+    try {
+      DurationMeasure measure = extrapolate(DurationMeasureFiles.fromJson(analysisMeasureFile), factor, false);
+      if (Files.isRegularFile(performanceMeasureFile)) {
+        measure = merge(DurationMeasureFiles.fromJson(performanceMeasureFile), measure);
+      }
+      DurationMeasureFiles.writeJson(performanceMeasureFile, measure);
+      if (factor > 1.0) {
+        LOG.debug("Per-visitor performance measures extrapolated by a factor of {}", factor);
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Unable to extrapolate the sampled performance measures of {}: {}", analysisMeasureFile, e.getMessage());
+    } finally {
+      deleteQuietly(analysisMeasureFile);
+    }
+  }
+
+  @VisibleForTesting
+  static DurationMeasure extrapolate(DurationMeasure measure, double factor, boolean sampled) {
+    boolean sampledChildren = sampled || SAMPLED_MEASURES_PARENT.equals(measure.name());
+    Map<String, DurationMeasure> children = new LinkedHashMap<>();
+    for (DurationMeasure child : measure.children()) {
+      children.put(child.name(), extrapolate(child, factor, sampledChildren));
+    }
+    if (!sampled || factor <= 1.0) {
+      return new DurationMeasure(measure.name(), measure.calls(), measure.durationNanos(), children);
+    }
+    return new DurationMeasure(measure.name(), Math.round(measure.calls() * factor), Math.round(measure.durationNanos() * factor), children);
+  }
+
+  @VisibleForTesting
+  static DurationMeasure merge(DurationMeasure existing, DurationMeasure added) {
+    Map<String, DurationMeasure> children = new LinkedHashMap<>();
+    for (DurationMeasure child : existing.children()) {
+      children.put(child.name(), child);
+    }
+    for (DurationMeasure child : added.children()) {
+      children.merge(child.name(), child, SampledPerformanceMeasure::merge);
+    }
+    return new DurationMeasure(existing.name(), existing.calls() + added.calls(), existing.durationNanos() + added.durationNanos(), children);
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      LOG.debug("Unable to delete {}: {}", file, e.getMessage());
+    }
+  }
+}
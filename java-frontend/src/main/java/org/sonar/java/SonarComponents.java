@@ -22,16 +22,20 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongSupplier;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
@@ -50,6 +54,8 @@ import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.Checks;
 import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
 import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
 import org.sonar.api.config.Configuration;
@@ -58,7 +64,12 @@ import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.Version;
 import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.caching.CacheContextImpl;
+import org.sonar.java.caching.CacheIndex;
 import org.sonar.java.caching.ContentHashCache;
+import org.sonar.java.caching.FileHashingUtils;
+import org.sonar.java.caching.LocalCache;
+import org.sonar.java.caching.TypeDependencyCache;
 import org.sonar.java.classpath.ClasspathForMain;
 import org.sonar.java.classpath.ClasspathForTest;
 import org.sonar.java.exceptions.ApiMismatchException;
@@ -87,6 +98,62 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
   public static final String SONAR_AUTOSCAN_CHECK_FILTERING = "sonar.internal.analysis.autoscan.filtering";
   public static final String SONAR_BATCH_SIZE_KEY = "sonar.java.experimental.batchModeSizeInKB";
   public static final String SONAR_FILE_BY_FILE = "sonar.java.fileByFile";
+  /**
+   * When enabled, the batch size is only used for the first batch. The size of the following batches is then adjusted
+   * depending on the heap occupancy after garbage collection and on the duration of the previous batch.
+   */
+  public static final String SONAR_ADAPTIVE_BATCH_SIZE_KEY = "sonar.java.experimental.adaptiveBatchSize";
+  /**
+   * When enabled, files are reordered before being split into batches, so that files of the same package and of packages
+   * importing each other are parsed in the same batch.
+   */
+  public static final String SONAR_CLUSTER_BATCHES_KEY = "sonar.java.experimental.clusterBatchesByDependencies";
+  /**
+   * Directory in which the data reused by the next analyses is stored. Unlike the work directory, it is not cleaned at the beginning of
+   * each analysis. Relative paths are resolved against the base directory of the project. By default, the "sonar-java" directory of the
+   * SonarScanner user home is used.
+   */
+  public static final String SONAR_PERSISTENT_WORK_DIR_KEY = "sonar.java.experimental.persistentWorkDir";
+  /**
+   * Number of threads used to parse ECJ batches ahead of their analysis. Only taken into account when files are analyzed in several batches.
+   * By default, a single thread is used and batches are parsed and analyzed one after the other.
+   */
+  public static final String SONAR_ANALYSIS_THREADS_KEY = "sonar.java.analysis.threads";
+  /**
+   * When enabled, the small entries of the server-side cache (content hashes, type dependencies, small payloads of the checks)
+   * are stored in a single compressed index, read once at the beginning of the analysis and written once at its end.
+   */
+  public static final String SONAR_CACHE_INDEX_KEY = "sonar.java.experimental.cacheIndex";
+  /**
+   * When enabled, and when the server does not provide a cache, the data which would be stored in the server-side cache is stored in a
+   * file of the {@link #persistentWorkDir() persistent work directory} instead, in a subdirectory per project and module. Whether unchanged files are skipped is still decided by {@link #SONAR_CAN_SKIP_UNCHANGED_FILES_KEY}.
+   */
+  public static final String SONAR_LOCAL_CACHE_KEY = "sonar.java.experimental.localCache";
+  /**
+   * Enables the performance measures of the analysis, written by the sensor in a JSON file.
+   */
+  public static final String SONAR_PERFORMANCE_MEASURE_KEY = "sonar.java.performance.measure";
+  /**
+   * Sampling period of the performance measure of each subscription visitor on each visited node: when set to N, the nodes of one
+   * file out of N are timed per visitor, and the resulting measures are extrapolated to all the files in the performance measure file.
+   * When 0, subscription visitors are only timed as a whole, which keeps the dispatch of the nodes free of any measurement overhead.
+   * By default, every file is timed per visitor when {@link #SONAR_PERFORMANCE_MEASURE_KEY performance measures} or the
+   * {@link #SONAR_RULE_COST_REPORT_KEY rule cost report} are enabled, and none otherwise.
+   */
+  public static final String SONAR_VISITOR_TIMING_SAMPLING_KEY = "sonar.java.performance.measure.visitorSampling";
+  /**
+   * When enabled, the CPU time, allocated bytes, visited nodes, reported issues and skipped files of each rule are written in the work
+   * directory at the end of the analysis, see {@link RuleCostReport}.
+   */
+  public static final String SONAR_RULE_COST_REPORT_KEY = "sonar.java.experimental.ruleCostReport";
+  /**
+   * When enabled, and when unchanged files can be skipped, the types declared and referenced by each analyzed file are stored in the
+   * cache, and an unchanged file is fully analyzed again when one of the types it references was declared in a file which has changed or
+   * has been deleted since the previous analysis. Only direct dependencies are tracked: a file is not invalidated by a change in a type it
+   * only reaches through another type, nor by a type added since the previous analysis which changes how one of its names is resolved,
+   * e.g. a type of its own package shadowing a type imported on demand.
+   */
+  public static final String SONAR_TYPE_DEPENDENCIES_KEY = "sonar.java.experimental.typeDependencies";
   /**
    * Describes if an optimized analysis of unchanged by skipping some rules is enabled.
    * By default, the property is not set (null), leaving SQ/SC to decide whether to enable this behavior.
@@ -127,6 +194,13 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
   private final Set<RuleKey> additionalAutoScanCompatibleRuleKeys;
 
   private boolean alreadyLoggedSkipStatus = false;
+  private Set<String> changedTypes = null;
+  private final Map<String, byte[]> precomputedContentHashes = new ConcurrentHashMap<>();
+  private final AtomicLong visitorTimingFiles = new AtomicLong();
+  private final AtomicLong visitorTimingSampledFiles = new AtomicLong();
+  private CacheIndex cacheIndex = null;
+  private LocalCache localCache = null;
+  private RuleCostReport ruleCostReport = null;
 
   public SonarComponents(FileLinesContextFactory fileLinesContextFactory, FileSystem fs,
     ClasspathForMain javaClasspath, ClasspathForTest javaTestClasspath,
@@ -403,6 +477,10 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
       issue.addFlow((InputFile) analyzerMessage.getInputComponent(), analyzerMessage.flows);
     }
     issue.save();
+    RuleCostReport costReport = ruleCostReport();
+    if (costReport != null) {
+      costReport.addIssue(key.toString());
+    }
   }
 
   public boolean reportAnalysisError(RecognitionException re, InputFile inputFile) {
@@ -476,6 +554,115 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
     return config.getLong(SONAR_BATCH_SIZE_KEY).orElse(computeIdealBatchSize());
   }
 
+  /**
+   * Returns the number of threads to use for batch parsing, as read from configuration.
+   *
+   * @return the configured number of threads, or 1 if the value is missing or not strictly positive, or if there is no sensor context.
+   */
+  public int getAnalysisThreads() {
+    if (context == null) {
+      return 1;
+    }
+    return Math.max(1, context.config().getInt(SONAR_ANALYSIS_THREADS_KEY).orElse(1));
+  }
+
+  public boolean isBatchClusteringEnabled() {
+    return context != null && context.config().getBoolean(SONAR_CLUSTER_BATCHES_KEY).orElse(false);
+  }
+
+  public boolean isAdaptiveBatchSizeEnabled() {
+    return context != null && context.config().getBoolean(SONAR_ADAPTIVE_BATCH_SIZE_KEY).orElse(false);
+  }
+
+  public boolean isCacheIndexEnabled() {
+    return context != null && context.config().getBoolean(SONAR_CACHE_INDEX_KEY).orElse(false);
+  }
+
+  public boolean isLocalCacheEnabled() {
+    return context != null && context.config().getBoolean(SONAR_LOCAL_CACHE_KEY).orElse(false);
+  }
+
+  public boolean isTypeDependencyTrackingEnabled() {
+    return context != null && context.config().getBoolean(SONAR_TYPE_DEPENDENCIES_KEY).orElse(false);
+  }
+
+  public boolean isRuleCostReportEnabled() {
+    return context != null && context.config() != null && context.config().getBoolean(SONAR_RULE_COST_REPORT_KEY).orElse(false);
+  }
+
+  /**
+   * @return the report of the cost of each rule, or null when it is not enabled
+   */
+  @CheckForNull
+  public synchronized RuleCostReport ruleCostReport() {
+    if (ruleCostReport == null && isRuleCostReportEnabled()) {
+      ruleCostReport = new RuleCostReport(check -> getRuleKey(check).map(RuleKey::toString).orElseGet(() -> check.getClass().getName()));
+      if (visitorTimingSamplingPeriod() == 0) {
+        LOG.warn("The CPU time and allocated bytes of subscription visitors are not measured, as \"{}\" is set to 0: "
+          + "they will be reported as 0.", SONAR_VISITOR_TIMING_SAMPLING_KEY);
+      }
+    }
+    return ruleCostReport;
+  }
+
+  /**
+   * Writes the report of the cost of each rule in the work directory, once all the files have been analyzed. Does nothing when the
+   * report is not enabled.
+   */
+  public synchronized void writeRuleCostReport() {
+    if (ruleCostReport != null) {
+      ruleCostReport.write(context.fileSystem().workDir().toPath(), visitorTimingExtrapolationFactor());
+    }
+  }
+
+  /**
+   * @return the sampling period of the per-visitor performance measure, or 0 when subscription visitors should not be timed individually.
+   */
+  public int visitorTimingSamplingPeriod() {
+    if (context == null || context.config() == null) {
+      return 0;
+    }
+    boolean measured = context.config().getBoolean(SONAR_PERFORMANCE_MEASURE_KEY).orElse(false) || isRuleCostReportEnabled();
+    int defaultSamplingPeriod = measured ? 1 : 0;
+    return Math.max(0, context.config().getInt(SONAR_VISITOR_TIMING_SAMPLING_KEY).orElse(defaultSamplingPeriod));
+  }
+
+  /**
+   * Decides whether the subscription visitors are timed individually on the next analyzed file: one file out of
+   * {@link #visitorTimingSamplingPeriod()} is sampled, across all the files of the analysis.
+   */
+  public boolean sampleVisitorTiming() {
+    int samplingPeriod = visitorTimingSamplingPeriod();
+    if (samplingPeriod == 0) {
+      return false;
+    }
+    boolean sampled = visitorTimingFiles.getAndIncrement() % samplingPeriod == 0;
+    if (sampled) {
+      visitorTimingSampledFiles.incrementAndGet();
+    }
+    return sampled;
+  }
+
+  /**
+   * @return the factor by which the per-visitor measures of the sampled files are multiplied to estimate the cost of the visitors on all
+   * the files, or 1 when no file has been sampled
+   */
+  public double visitorTimingExtrapolationFactor() {
+    long sampledFiles = visitorTimingSampledFiles.get();
+    return sampledFiles == 0 ? 1.0 : ((double) visitorTimingFiles.get() / sampledFiles);
+  }
+
+  /**
+   * @return true when the local cache is enabled, caching is not explicitly disabled, and the server does not provide a cache
+   */
+  public boolean usesLocalCache() {
+    Configuration config = context.config();
+    return config != null
+      && config.getBoolean(SONAR_LOCAL_CACHE_KEY).orElse(false)
+      && config.getBoolean(CacheContextImpl.SONAR_CACHING_ENABLED_KEY).orElse(true)
+      && !context.isCacheEnabled();
+  }
+
   public boolean shouldIgnoreUnnamedModuleForSplitPackage() {
     return context.config().getBoolean(SONAR_IGNORE_UNNAMED_MODULE_FOR_SPLIT_PACKAGE).orElse(false);
   }
@@ -497,6 +684,20 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
     }
   }
 
+  /**
+   * @return the directory configured by {@link #SONAR_PERSISTENT_WORK_DIR_KEY}, or the "sonar-java" directory of the user home
+   */
+  public File persistentWorkDir() {
+    Configuration config = context.config();
+    Optional<String> configuredDir = config.get(SONAR_PERSISTENT_WORK_DIR_KEY);
+    if (configuredDir.isPresent()) {
+      Path dir = Path.of(configuredDir.get());
+      return dir.isAbsolute() ? dir.toFile() : context.fileSystem().baseDir().toPath().resolve(dir).toFile();
+    }
+    String userHome = config.get("sonar.userHome").orElseGet(() -> Path.of(System.getProperty("user.home"), ".sonar").toString());
+    return Path.of(userHome, "sonar-java").toFile();
+  }
+
   /**
    * Returns an OS-independent key that should identify the module within the project
    *
@@ -548,6 +749,93 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
   }
 
 
+  /**
+   * Computes the content hashes of the given files in parallel, ahead of the sequential calls to {@link #fileCanBeSkipped(InputFile)}.
+   */
+  public void precomputeContentHashes(Collection<InputFile> inputFiles) {
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(), Math.max(1, inputFiles.size()));
+    precomputedContentHashes.putAll(FileHashingUtils.inputFileContentHashes(inputFiles, threads));
+  }
+
+  @CheckForNull
+  public byte[] precomputedContentHash(InputFile inputFile) {
+    return precomputedContentHashes.get(inputFile.key());
+  }
+
+  /**
+   * The cache of the previous analysis, read through the cache index when it is enabled, and from the local cache when it is used.
+   */
+  public ReadCache previousCache() {
+    CacheIndex index = cacheIndex();
+    return index != null ? index.readCache() : basePreviousCache();
+  }
+
+  /**
+   * The cache of the next analysis, written through the cache index when it is enabled, and to the local cache when it is used.
+   */
+  public WriteCache nextCache() {
+    CacheIndex index = cacheIndex();
+    return index != null ? index.writeCache() : baseNextCache();
+  }
+
+  /**
+   * Writes the cache index to the next cache and saves the local cache, once all the files have been analyzed. Does nothing when
+   * neither of them is used. The keys of the Java files are written beforehand, so that the next analysis knows which ones have
+   * been deleted.
+   */
+  public synchronized void saveCaches() {
+    var typeDependencyCache = new TypeDependencyCache(this);
+    if (!isSonarLintContext() && typeDependencyCache.isEnabled()) {
+      List<String> fileKeys = new ArrayList<>();
+      javaFiles().forEach(file -> fileKeys.add(file.key()));
+      typeDependencyCache.writeFileKeys(getModuleKey(), fileKeys);
+    }
+    if (cacheIndex != null) {
+      cacheIndex.save();
+    }
+    if (localCache != null) {
+      localCache.save();
+    }
+  }
+
+  private ReadCache basePreviousCache() {
+    LocalCache local = localCache();
+    return local != null ? local : context.previousCache();
+  }
+
+  private WriteCache baseNextCache() {
+    LocalCache local = localCache();
+    return local != null ? local : context.nextCache();
+  }
+
+  @CheckForNull
+  private synchronized CacheIndex cacheIndex() {
+    if (cacheIndex == null && isCacheIndexEnabled()) {
+      cacheIndex = new CacheIndex(basePreviousCache(), baseNextCache(), getModuleKey());
+    }
+    return cacheIndex;
+  }
+
+  @CheckForNull
+  private synchronized LocalCache localCache() {
+    if (localCache == null && usesLocalCache()) {
+      localCache = new LocalCache(localCacheDir());
+    }
+    return localCache;
+  }
+
+  /**
+   * The work directory is cleaned at the beginning of each analysis, so the local cache is stored in the persistent work directory.
+   * It is shared by all the projects analyzed on the machine, hence the project and module subdirectories.
+   */
+  @VisibleForTesting
+  Path localCacheDir() {
+    String projectKey = context.config().get("sonar.projectKey").orElse("default");
+    Path dir = persistentWorkDir().toPath().resolve("local-cache").resolve(projectKey.replaceAll("[^\\w.-]", "_"));
+    String moduleKey = getModuleKey();
+    return moduleKey.isEmpty() ? dir : dir.resolve(moduleKey);
+  }
+
   public boolean fileCanBeSkipped(InputFile inputFile) {
     var contentHashCache = new ContentHashCache(this);
     if (inputFile instanceof GeneratedFile) {
@@ -582,7 +870,63 @@ public class SonarComponents extends CheckRegistrar.RegistrarContext {
       contentHashCache.writeToCache(inputFile);
       return false;
     }
-    return contentHashCache.hasSameHashCached(inputFile);
+    if (!contentHashCache.hasSameHashCached(inputFile)) {
+      return false;
+    }
+    var typeDependencyCache = new TypeDependencyCache(this);
+    if (dependsOnChangedTypes(inputFile, typeDependencyCache)) {
+      LOG.debug("File {} is unchanged but depends on changed types, it will be fully analyzed.", inputFile);
+      return false;
+    }
+    typeDependencyCache.copyFromPrevious(inputFile);
+    return true;
+  }
+
+  private boolean dependsOnChangedTypes(InputFile inputFile, TypeDependencyCache typeDependencyCache) {
+    if (!typeDependencyCache.isEnabled()) {
+      return false;
+    }
+    Set<String> referencedTypes = typeDependencyCache.readReferencedTypes(inputFile);
+    if (referencedTypes == null || referencedTypes.isEmpty()) {
+      return false;
+    }
+    Set<String> changedTypes = changedTypes(typeDependencyCache);
+    return referencedTypes.stream().anyMatch(changedTypes::contains);
+  }
+
+  /**
+   * Types which were declared, during the previous analysis, in the files which have changed or have been deleted since then.
+   */
+  private Set<String> changedTypes(TypeDependencyCache typeDependencyCache) {
+    if (changedTypes == null) {
+      var contentHashCache = new ContentHashCache(this);
+      changedTypes = new HashSet<>();
+      Set<String> fileKeys = new HashSet<>();
+      for (InputFile file : javaFiles()) {
+        fileKeys.add(file.key());
+        if (!contentHashCache.hasSameHash(file)) {
+          addDeclaredTypes(typeDependencyCache.readDeclaredTypes(file));
+        }
+      }
+      Set<String> previousFileKeys = typeDependencyCache.readFileKeys(getModuleKey());
+      if (previousFileKeys != null) {
+        previousFileKeys.stream()
+          .filter(fileKey -> !fileKeys.contains(fileKey))
+          .forEach(deletedFileKey -> addDeclaredTypes(typeDependencyCache.readDeclaredTypes(deletedFileKey)));
+      }
+    }
+    return changedTypes;
+  }
+
+  private void addDeclaredTypes(@Nullable Set<String> declaredTypes) {
+    if (declaredTypes != null) {
+      changedTypes.addAll(declaredTypes);
+    }
+  }
+
+  private Iterable<InputFile> javaFiles() {
+    FileSystem fileSystem = context.fileSystem();
+    return fileSystem.inputFiles(fileSystem.predicates().hasLanguage("java"));
   }
 
   public InputComponent project() {
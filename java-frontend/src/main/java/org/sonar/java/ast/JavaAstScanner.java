@@ -64,6 +64,10 @@ public class JavaAstScanner {
     return visitor.getClasspath();
   }
 
+  public Set<JProblem.Type> requiredWarnings() {
+    return visitor.requiredWarnings();
+  }
+
   /**
    * Attempt to scan files without parsing, using the raw input file and cached information.
    *
@@ -85,6 +89,7 @@ public class JavaAstScanner {
         sonarComponents.shouldIgnoreUnnamedModuleForSplitPackage();
       JParserConfig.Mode.FILE_BY_FILE
         .create(visitor.getJavaVersion(), visitor.getClasspath(), shouldIgnoreUnnamedModuleForSplitPacakge)
+        .setEnabledWarnings(visitor.requiredWarnings())
         .parse(filesNames,
           this::analysisCancelled,
           analysisProgress,
@@ -68,10 +68,10 @@ public class CacheContextImpl implements CacheContext {
       var isCachingEnabled = isCachingEnabled(sensorContext);
       LOGGER.trace("Caching is enabled: {}", isCachingEnabled);
       if (!isCachingEnabled) {
-        return dummyCache();
+        return sonarComponents.usesLocalCache() ? fromSensorContext(sonarComponents) : dummyCache();
       }
 
-      return fromSensorContext(sensorContext);
+      return fromSensorContext(sonarComponents);
     } catch (NoSuchMethodError error) {
       LOGGER.debug("Missing cache related method from sonar-plugin-api: {}.", error.getMessage());
       return dummyCache();
@@ -83,11 +83,11 @@ public class CacheContextImpl implements CacheContext {
     return new CacheContextImpl(false, dummyCache, dummyCache);
   }
 
-  private static CacheContextImpl fromSensorContext(SensorContext context) {
+  private static CacheContextImpl fromSensorContext(SonarComponents sonarComponents) {
     return new CacheContextImpl(
       true,
-      new JavaReadCacheImpl(context.previousCache()),
-      new JavaWriteCacheImpl(context.nextCache())
+      new JavaReadCacheImpl(sonarComponents.previousCache()),
+      new JavaWriteCacheImpl(sonarComponents.nextCache())
     );
   }
 
@@ -0,0 +1,201 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+
+/**
+ * Groups the small entries of the cache of a module into a single sorted and compressed blob, stored under
+ * {@link #CACHE_INDEX_KEY_PREFIX} followed by the module key, since the cache is shared by all the modules of the project. The blob of the previous analysis is read once, when the index is created, and the blob of the next analysis is written
+ * once, by {@link #save()}.
+ * <p>
+ * The index is used through the {@link #readCache()} and {@link #writeCache()} views, which behave like the caches they wrap:
+ * entries larger than {@link #MAX_ENTRY_SIZE} are delegated to the wrapped caches, as well as the entries which cannot be
+ * found in the previous blob (for instance when the previous analysis did not use the index).
+ */
+public class CacheIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CacheIndex.class);
+
+  public static final String CACHE_INDEX_KEY_PREFIX = "java:cacheIndex:v1:";
+  static final int MAX_ENTRY_SIZE = 4 * 1024;
+
+  private final ReadCache previousCache;
+  private final WriteCache nextCache;
+  private final String indexKey;
+  private final Map<String, byte[]> previousEntries;
+  private final SortedMap<String, byte[]> nextEntries = new TreeMap<>();
+  private final Set<String> delegatedKeys = new HashSet<>();
+  private boolean saved = false;
+
+  public CacheIndex(ReadCache previousCache, WriteCache nextCache, String moduleKey) {
+    this.previousCache = previousCache;
+    this.nextCache = nextCache;
+    this.indexKey = indexKey(moduleKey);
+    this.previousEntries = load(previousCache, indexKey);
+  }
+
+  public static String indexKey(String moduleKey) {
+    return CACHE_INDEX_KEY_PREFIX + moduleKey;
+  }
+
+  public ReadCache readCache() {
+    return new IndexedReadCache();
+  }
+
+  public WriteCache writeCache() {
+    return new IndexedWriteCache();
+  }
+
+  /**
+   * Writes the entries of the index to the next cache. Only the first call has an effect.
+   */
+  public synchronized void save() {
+    if (saved) {
+      return;
+    }
+    saved = true;
+    try {
+      nextCache.write(indexKey, serialize(nextEntries));
+      LOG.debug("Cache index saved with {} entries.", nextEntries.size());
+    } catch (IOException | IllegalArgumentException e) {
+      LOG.warn("Unable to save the cache index: {}", e.getMessage());
+    }
+  }
+
+  private static Map<String, byte[]> load(ReadCache previousCache, String indexKey) {
+    if (!previousCache.contains(indexKey)) {
+      return Map.of();
+    }
+    try (InputStream in = previousCache.read(indexKey)) {
+      if (in == null) {
+        return Map.of();
+      }
+      Map<String, byte[]> entries = deserialize(in);
+      LOG.debug("Cache index loaded with {} entries.", entries.size());
+      return entries;
+    } catch (IOException e) {
+      LOG.debug("Unable to read the cache index, it will be ignored: {}", e.getMessage());
+      return Map.of();
+    }
+  }
+
+  static byte[] serialize(SortedMap<String, byte[]> entries) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+      out.writeInt(entries.size());
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeInt(entry.getValue().length);
+        out.write(entry.getValue());
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  static Map<String, byte[]> deserialize(InputStream in) throws IOException {
+    try (var data = new DataInputStream(new GZIPInputStream(in))) {
+      int size = data.readInt();
+      Map<String, byte[]> entries = new HashMap<>();
+      for (int i = 0; i < size; i++) {
+        String key = data.readUTF();
+        byte[] value = new byte[data.readInt()];
+        data.readFully(value);
+        entries.put(key, value);
+      }
+      return entries;
+    }
+  }
+
+  private synchronized void write(String key, byte[] data) {
+    if (nextEntries.containsKey(key) || delegatedKeys.contains(key)) {
+      throw new IllegalArgumentException(String.format("Cache already contains key '%s'", key));
+    }
+    if (data.length > MAX_ENTRY_SIZE) {
+      nextCache.write(key, data);
+      delegatedKeys.add(key);
+    } else {
+      nextEntries.put(key, data);
+    }
+  }
+
+  private synchronized void copyFromPrevious(String key) {
+    byte[] previous = previousEntries.get(key);
+    if (previous == null) {
+      if (nextEntries.containsKey(key)) {
+        throw new IllegalArgumentException(String.format("Cache already contains key '%s'", key));
+      }
+      nextCache.copyFromPrevious(key);
+      delegatedKeys.add(key);
+    } else {
+      write(key, previous);
+    }
+  }
+
+  private class IndexedReadCache implements ReadCache {
+
+    @Override
+    public InputStream read(String key) {
+      byte[] previous = previousEntries.get(key);
+      return previous != null ? new ByteArrayInputStream(previous) : previousCache.read(key);
+    }
+
+    @Override
+    public boolean contains(String key) {
+      return previousEntries.containsKey(key) || previousCache.contains(key);
+    }
+  }
+
+  private class IndexedWriteCache implements WriteCache {
+
+    @Override
+    public void write(String key, InputStream data) {
+      try {
+        CacheIndex.this.write(key, data.readAllBytes());
+      } catch (IOException e) {
+        throw new IllegalStateException(String.format("Unable to read data for key '%s'", key), e);
+      }
+    }
+
+    @Override
+    public void write(String key, byte[] data) {
+      CacheIndex.this.write(key, data);
+    }
+
+    @Override
+    public void copyFromPrevious(String key) {
+      CacheIndex.this.copyFromPrevious(key);
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.plugins.java.api.caching.CacheContext;
+
+/**
+ * Encodes lists of strings stored in the cache. A payload starts with a header made of a marker byte, which never appears in UTF-8 text,
+ * the version of the format and flags. The strings are then stored once in a table, followed by the indexes of the values in this table,
+ * all the integers being encoded as varints. Large bodies are compressed.
+ * <p>
+ * Payloads written with another version of the format, or without header, are decoded as {@code null}, i.e. as missing entries.
+ */
+public final class CachePayloadCodec {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CachePayloadCodec.class);
+
+  static final byte MARKER = (byte) 0xFE;
+  static final byte FORMAT_VERSION = 1;
+  static final int HEADER_SIZE = 3;
+  static final int FLAG_COMPRESSED = 1;
+  static final int COMPRESSION_THRESHOLD = 512;
+
+  private CachePayloadCodec() {
+  }
+
+  public static byte[] encodeStrings(List<String> values) {
+    Map<String, Integer> indexes = new HashMap<>();
+    List<String> table = new ArrayList<>();
+    for (String value : values) {
+      indexes.computeIfAbsent(value, v -> {
+        table.add(v);
+        return table.size() - 1;
+      });
+    }
+    var body = new ByteArrayOutputStream();
+    writeVarint(body, table.size());
+    for (String value : table) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarint(body, bytes.length);
+      body.writeBytes(bytes);
+    }
+    writeVarint(body, values.size());
+    for (String value : values) {
+      writeVarint(body, indexes.get(value));
+    }
+    byte[] rawBody = body.toByteArray();
+    byte[] compressedBody = rawBody.length >= COMPRESSION_THRESHOLD ? compress(rawBody) : null;
+    boolean compressed = compressedBody != null && compressedBody.length < rawBody.length;
+
+    var payload = new ByteArrayOutputStream(HEADER_SIZE + rawBody.length);
+    payload.write(MARKER);
+    payload.write(FORMAT_VERSION);
+    payload.write(compressed ? FLAG_COMPRESSED : 0);
+    payload.writeBytes(compressed ? compressedBody : rawBody);
+    return payload.toByteArray();
+  }
+
+  /**
+   * Writes the given strings to the write cache of the context, encoded with {@link #encodeStrings(List)}.
+   *
+   * @throws IllegalArgumentException if something was already written under the provided {@code key}
+   */
+  public static void writeStrings(CacheContext cacheContext, String key, List<String> values) {
+    cacheContext.getWriteCache().write(key, encodeStrings(values));
+  }
+
+  /**
+   * Reads strings written by {@link #writeStrings(CacheContext, String, List)} during the previous analysis.
+   *
+   * @return the strings, or null if the key is missing or if its data was written in another format
+   */
+  @CheckForNull
+  public static List<String> readStrings(CacheContext cacheContext, String key) {
+    return decodeStrings(cacheContext.getReadCache().readBytes(key));
+  }
+
+  /**
+   * @return the decoded strings, or null if there is no payload or if it was not written by {@link #encodeStrings(List)} with the current
+   * version of the format
+   */
+  @CheckForNull
+  public static List<String> decodeStrings(@Nullable byte[] payload) {
+    if (payload == null) {
+      return null;
+    }
+    if (payload.length < HEADER_SIZE || payload[0] != MARKER || payload[1] != FORMAT_VERSION || (payload[2] & ~FLAG_COMPRESSED) != 0) {
+      LOG.trace("Ignoring cached payload written with another format.");
+      return null;
+    }
+    try {
+      byte[] body = Arrays.copyOfRange(payload, HEADER_SIZE, payload.length);
+      if ((payload[2] & FLAG_COMPRESSED) != 0) {
+        body = decompress(body);
+      }
+      var reader = new Reader(body);
+      int tableSize = reader.readCount();
+      List<String> table = new ArrayList<>(tableSize);
+      for (int i = 0; i < tableSize; i++) {
+        table.add(reader.readString());
+      }
+      int size = reader.readCount();
+      List<String> values = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        values.add(table.get(reader.readVarint()));
+      }
+      return values;
+    } catch (IndexOutOfBoundsException | DataFormatException e) {
+      LOG.trace("Ignoring malformed cached payload: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private static void writeVarint(ByteArrayOutputStream out, int value) {
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      out.write((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    out.write(remaining);
+  }
+
+  private static byte[] compress(byte[] data) {
+    var deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      var out = new ByteArrayOutputStream(data.length / 2);
+      byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] decompress(byte[] data) throws DataFormatException {
+    var inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      var out = new ByteArrayOutputStream(data.length * 2);
+      byte[] buffer = new byte[4096];
+      while (!inflater.finished()) {
+        int length = inflater.inflate(buffer);
+        if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new DataFormatException("Truncated compressed payload");
+        }
+        out.write(buffer, 0, length);
+      }
+      return out.toByteArray();
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static class Reader {
+    private final byte[] data;
+    private int position = 0;
+
+    Reader(byte[] data) {
+      this.data = data;
+    }
+
+    int readVarint() {
+      int value = 0;
+      int shift = 0;
+      byte current;
+      do {
+        if (shift > 28) {
+          throw new IndexOutOfBoundsException("Varint too long at position " + position);
+        }
+        current = data[position++];
+        value |= (current & 0x7F) << shift;
+        shift += 7;
+      } while ((current & 0x80) != 0);
+      return value;
+    }
+
+    /**
+     * Every counted element takes at least one byte, larger counts can only come from a corrupted payload.
+     */
+    int readCount() {
+      int count = readVarint();
+      if (count < 0 || count > data.length - position) {
+        throw new IndexOutOfBoundsException("Invalid count " + count + " at position " + position);
+      }
+      return count;
+    }
+
+    String readString() {
+      int length = readVarint();
+      if (length < 0 || length > data.length - position) {
+        throw new IndexOutOfBoundsException("Invalid string length " + length + " at position " + position);
+      }
+      String value = new String(data, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+  }
+}
@@ -29,21 +29,22 @@ import org.sonar.java.SonarComponents;
 public class ContentHashCache {
 
   private static final Logger LOG = LoggerFactory.getLogger(ContentHashCache.class);
-  private static final String CONTENT_HASH_KEY = String.format("java:contentHash:%s:", FileHashingUtils.HASH_ALGORITHM);
+  private static final String CONTENT_HASH_KEY = String.format("java:contentHash:%s-v%d:", FileHashingUtils.HASH_ALGORITHM, FileHashingUtils.HASH_VERSION);
   private static final String HASH_COMPUTE_FAIL_MSG = "Failed to compute content hash for file %s";
 
+  private final SonarComponents sonarComponents;
   private ReadCache readCache;
   private WriteCache writeCache;
   private final boolean enabled;
 
   public ContentHashCache(SonarComponents sonarComponents) {
+    this.sonarComponents = sonarComponents;
     CacheContextImpl cacheContext = CacheContextImpl.of(sonarComponents);
     enabled = cacheContext.isCacheEnabled();
 
-    var sensorContext = sonarComponents.context();
     if (enabled) {
-      readCache = sensorContext.previousCache();
-      writeCache = sensorContext.nextCache();
+      readCache = sonarComponents.previousCache();
+      writeCache = sonarComponents.nextCache();
     }
   }
 
@@ -59,9 +60,7 @@ public class ContentHashCache {
     String cacheKey = getCacheKey(inputFile);
     try {
       LOG.trace("Reading cache for the file {}", inputFile.key());
-      byte[] cachedHash = readCache.read(cacheKey).readAllBytes();
-      byte[] fileHash = FileHashingUtils.inputFileContentHash(inputFile);
-      boolean isHashEqual = MessageDigest.isEqual(fileHash, cachedHash);
+      boolean isHashEqual = hashEquals(inputFile, cacheKey);
       if (isHashEqual) {
         copyFromPrevious(inputFile);
       } else {
@@ -77,6 +76,30 @@ public class ContentHashCache {
     return false;
   }
 
+  /**
+   * Same as {@link #hasSameHashCached(InputFile)}, without writing anything to the next cache.
+   */
+  public boolean hasSameHash(InputFile inputFile) {
+    if (!enabled) {
+      return inputFile.status() == InputFile.Status.SAME;
+    }
+    String cacheKey = getCacheKey(inputFile);
+    try {
+      return hashEquals(inputFile, cacheKey);
+    } catch (IllegalArgumentException e) {
+      LOG.trace(String.format("Could not find key %s in the cache", cacheKey));
+    } catch (IOException | NoSuchAlgorithmException e) {
+      LOG.warn(String.format(HASH_COMPUTE_FAIL_MSG, inputFile.key()));
+    }
+    return false;
+  }
+
+  private boolean hashEquals(InputFile inputFile, String cacheKey) throws IOException, NoSuchAlgorithmException {
+    byte[] cachedHash = readCache.read(cacheKey).readAllBytes();
+    byte[] fileHash = contentHash(inputFile);
+    return MessageDigest.isEqual(fileHash, cachedHash);
+  }
+
   public boolean contains(InputFile inputFile) {
     if (!enabled) {
       LOG.trace("Cannot lookup cached hashes when the cache is disabled ({}).", inputFile.key());
@@ -93,7 +116,7 @@ public class ContentHashCache {
     LOG.trace("Writing to the cache for file {}", inputFile.key());
     String cacheKey = getCacheKey(inputFile);
     try {
-      writeCache.write(cacheKey, FileHashingUtils.inputFileContentHash(inputFile));
+      writeCache.write(cacheKey, contentHash(inputFile));
       return true;
     } catch (IllegalArgumentException e) {
       LOG.trace(String.format("Tried to write multiple times to cache key %s. Ignoring writes after the first.", cacheKey));
@@ -103,6 +126,11 @@ public class ContentHashCache {
     return false;
   }
 
+  private byte[] contentHash(InputFile inputFile) throws IOException, NoSuchAlgorithmException {
+    byte[] precomputedHash = sonarComponents.precomputedContentHash(inputFile);
+    return precomputedHash != null ? precomputedHash : FileHashingUtils.inputFileContentHash(inputFile);
+  }
+
   private void copyFromPrevious(InputFile inputFile) {
     LOG.trace("Copying cache from previous for file {}", inputFile.key());
     writeCache.copyFromPrevious(getCacheKey(inputFile));
@@ -16,35 +16,160 @@
  */
 package org.sonar.java.caching;
 
-import org.sonar.api.batch.fs.InputFile;
-
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-
-import static java.nio.charset.StandardCharsets.UTF_8;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.DaemonThreadFactory;
 
 public class FileHashingUtils {
 
+  private static final Logger LOG = LoggerFactory.getLogger(FileHashingUtils.class);
+
   private FileHashingUtils() {
   }
 
   public static final String HASH_ALGORITHM = "MD5";
 
+  /**
+   * To be increased whenever the hashed data changes, so that hashes computed by previous versions are not compared with new ones.
+   * Version 2 hashes the raw bytes of the files instead of their decoded content, without their byte order mark.
+   */
+  public static final int HASH_VERSION = 2;
+
+  /**
+   * The byte order marks skipped by {@link InputFile#inputStream()}, longest first as the UTF-32LE one starts with the UTF-16LE one.
+   * They are skipped when hashing local files too, so that a file has the same hash whether it is read locally or through its input stream.
+   */
+  private static final byte[][] BYTE_ORDER_MARKS = {
+    {(byte) 0xFF, (byte) 0xFE, 0x00, 0x00},
+    {0x00, 0x00, (byte) 0xFE, (byte) 0xFF},
+    {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF},
+    {(byte) 0xFF, (byte) 0xFE},
+    {(byte) 0xFE, (byte) 0xFF}
+  };
+  private static final int MAX_BYTE_ORDER_MARK_LENGTH = 4;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final ThreadLocal<ByteBuffer> DIRECT_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+  private static final ThreadLocal<byte[]> HEAP_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
   public static byte[] inputFileContentHash(InputFile inputFile) throws IOException, NoSuchAlgorithmException {
-    byte[] contentBytes = inputFile.contents().getBytes(StandardCharsets.UTF_8);
+    Path path = localFile(inputFile);
+    if (path != null) {
+      return fileContentHash(path);
+    }
     MessageDigest messageDigest = MessageDigest.getInstance(HASH_ALGORITHM);
-    return messageDigest.digest(contentBytes);
+    byte[] buffer = HEAP_BUFFER.get();
+    try (InputStream inputStream = inputFile.inputStream()) {
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        messageDigest.update(buffer, 0, read);
+      }
+    }
+    return messageDigest.digest();
   }
 
   public static byte[] inputFileContentHash(String filepath) throws IOException, NoSuchAlgorithmException {
-    File file = new File(filepath);
-    String contents = new String(Files.readAllBytes(file.toPath()), UTF_8);
+    return fileContentHash(Path.of(filepath));
+  }
+
+  /**
+   * Computes the content hashes of the given files on {@code threads} threads. Files whose content cannot be read are not
+   * part of the result, their hash will be computed again, and the failure reported, when it is needed.
+   *
+   * @return the content hashes indexed by {@link InputFile#key()}
+   */
+  public static Map<String, byte[]> inputFileContentHashes(Collection<? extends InputFile> inputFiles, int threads) {
+    Map<String, byte[]> hashes = new HashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("sonar-java-content-hash"));
+    try {
+      List<Future<byte[]>> futures = new ArrayList<>(inputFiles.size());
+      for (InputFile inputFile : inputFiles) {
+        futures.add(executor.submit(() -> inputFileContentHash(inputFile)));
+      }
+      int index = 0;
+      for (InputFile inputFile : inputFiles) {
+        try {
+          hashes.put(inputFile.key(), futures.get(index).get());
+        } catch (ExecutionException e) {
+          LOG.debug("Failed to compute content hash for file {}", inputFile.key());
+        }
+        index++;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+    return hashes;
+  }
+
+  private static byte[] fileContentHash(Path path) throws IOException, NoSuchAlgorithmException {
     MessageDigest messageDigest = MessageDigest.getInstance(HASH_ALGORITHM);
-    return messageDigest.digest(contents.getBytes(UTF_8));
+    ByteBuffer buffer = DIRECT_BUFFER.get();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer.clear();
+      int read = channel.read(buffer);
+      while (read != -1 && buffer.position() < MAX_BYTE_ORDER_MARK_LENGTH) {
+        read = channel.read(buffer);
+      }
+      buffer.flip();
+      buffer.position(byteOrderMarkLength(buffer));
+      messageDigest.update(buffer);
+      buffer.clear();
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        messageDigest.update(buffer);
+        buffer.clear();
+      }
+    }
+    return messageDigest.digest();
+  }
+
+  private static int byteOrderMarkLength(ByteBuffer buffer) {
+    for (byte[] byteOrderMark : BYTE_ORDER_MARKS) {
+      if (startsWith(buffer, byteOrderMark)) {
+        return byteOrderMark.length;
+      }
+    }
+    return 0;
+  }
+
+  private static boolean startsWith(ByteBuffer buffer, byte[] prefix) {
+    if (buffer.remaining() < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(buffer.position() + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @CheckForNull
+  private static Path localFile(InputFile inputFile) {
+    Path path = inputFile.path();
+    return path != null && Files.isRegularFile(path) ? path : null;
   }
 
 }
@@ -0,0 +1,133 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+
+/**
+ * Cache stored in a file of a directory which is kept between analyses, used in place of the server-side cache when the server does not provide one.
+ * The entries of the previous analysis are read from the file when the cache is created. The entries written or copied during
+ * the current analysis replace the content of the file when {@link #save()} is called, so entries which are not used anymore
+ * are dropped.
+ */
+public class LocalCache implements ReadCache, WriteCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LocalCache.class);
+
+  public static final String FILE_NAME = "sonar-java-local-cache.bin";
+
+  private final Path file;
+  private final Map<String, byte[]> previousEntries;
+  private final SortedMap<String, byte[]> nextEntries = new TreeMap<>();
+  private boolean saved = false;
+
+  public LocalCache(Path directory) {
+    this.file = directory.resolve(FILE_NAME);
+    this.previousEntries = load(file);
+  }
+
+  @Override
+  public InputStream read(String key) {
+    byte[] data = previousEntries.get(key);
+    if (data == null) {
+      throw new IllegalArgumentException(String.format("Local cache does not contain key '%s'", key));
+    }
+    return new ByteArrayInputStream(data);
+  }
+
+  @Override
+  public boolean contains(String key) {
+    return previousEntries.containsKey(key);
+  }
+
+  @Override
+  public void write(String key, InputStream data) {
+    try {
+      write(key, data.readAllBytes());
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Unable to read data for key '%s'", key), e);
+    }
+  }
+
+  @Override
+  public synchronized void write(String key, byte[] data) {
+    if (nextEntries.containsKey(key)) {
+      throw new IllegalArgumentException(String.format("Cache already contains key '%s'", key));
+    }
+    nextEntries.put(key, data);
+  }
+
+  @Override
+  public void copyFromPrevious(String key) {
+    byte[] data = previousEntries.get(key);
+    if (data == null) {
+      throw new IllegalArgumentException(String.format("Local cache does not contain key '%s'", key));
+    }
+    write(key, data);
+  }
+
+  /**
+   * Replaces the content of the cache file with the entries of the current analysis. Only the first call has an effect.
+   */
+  public synchronized void save() {
+    if (saved) {
+      return;
+    }
+    saved = true;
+    Path temporaryFile = file.resolveSibling(FILE_NAME + ".tmp");
+    try {
+      Files.createDirectories(file.getParent());
+      Files.write(temporaryFile, CacheIndex.serialize(nextEntries));
+      try {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      LOG.debug("Local cache saved with {} entries in {}.", nextEntries.size(), file);
+    } catch (IOException e) {
+      LOG.warn("Unable to save the local cache in {}: {}", file, e.getMessage());
+    }
+  }
+
+  private static Map<String, byte[]> load(Path file) {
+    if (!Files.isRegularFile(file)) {
+      LOG.debug("No local cache found in {}.", file);
+      return Map.of();
+    }
+    try (InputStream in = Files.newInputStream(file)) {
+      Map<String, byte[]> entries = CacheIndex.deserialize(in);
+      LOG.debug("Local cache loaded with {} entries from {}.", entries.size(), file);
+      return entries;
+    } catch (IOException e) {
+      LOG.debug("Unable to read the local cache, it will be ignored: {}", e.getMessage());
+      return Map.of();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+import org.sonar.java.SonarComponents;
+
+/**
+ * Stores, for each file, the types it declares and the types it has been resolved against, so that an unchanged file can be
+ * reanalyzed when one of the types it depends on has changed. The keys of the files of each module are also stored, so that the
+ * types declared in a file deleted since the previous analysis are known to have changed as well.
+ * <p>
+ * Only enabled with {@link SonarComponents#SONAR_TYPE_DEPENDENCIES_KEY}, which also describes the limits of this invalidation.
+ */
+public class TypeDependencyCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TypeDependencyCache.class);
+  private static final String DECLARED_TYPES_KEY = "java:declaredTypes:";
+  private static final String REFERENCED_TYPES_KEY = "java:referencedTypes:";
+  private static final String FILES_KEY = "java:typeDependencyFiles:";
+
+  private ReadCache readCache;
+  private WriteCache writeCache;
+  private final boolean enabled;
+
+  public TypeDependencyCache(SonarComponents sonarComponents) {
+    CacheContextImpl cacheContext = CacheContextImpl.of(sonarComponents);
+    enabled = cacheContext.isCacheEnabled() && sonarComponents.isTypeDependencyTrackingEnabled();
+
+    if (enabled) {
+      readCache = sonarComponents.previousCache();
+      writeCache = sonarComponents.nextCache();
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @return the types declared in the file during the previous analysis, or null if they are unknown
+   */
+  @CheckForNull
+  public Set<String> readDeclaredTypes(InputFile inputFile) {
+    return readDeclaredTypes(inputFile.key());
+  }
+
+  /**
+   * Same as {@link #readDeclaredTypes(InputFile)}, for a file which may no longer be part of the analysis.
+   */
+  @CheckForNull
+  public Set<String> readDeclaredTypes(String fileKey) {
+    return read(DECLARED_TYPES_KEY + fileKey);
+  }
+
+  /**
+   * @return the types the file depended on during the previous analysis, or null if they are unknown
+   */
+  @CheckForNull
+  public Set<String> readReferencedTypes(InputFile inputFile) {
+    return read(REFERENCED_TYPES_KEY + inputFile.key());
+  }
+
+  /**
+   * @return the keys of the files of the module during the previous analysis, or null if they are unknown
+   */
+  @CheckForNull
+  public Set<String> readFileKeys(String moduleKey) {
+    return read(FILES_KEY + moduleKey);
+  }
+
+  public void writeFileKeys(String moduleKey, Collection<String> fileKeys) {
+    if (!enabled) {
+      return;
+    }
+    LOG.trace("Writing the keys of {} files to the cache for module '{}'", fileKeys.size(), moduleKey);
+    write(FILES_KEY + moduleKey, fileKeys);
+  }
+
+  public void write(InputFile inputFile, Collection<String> declaredTypes, Collection<String> referencedTypes) {
+    if (!enabled) {
+      LOG.trace("Cannot write type dependencies to the cache when the cache is disabled ({}).", inputFile.key());
+      return;
+    }
+    LOG.trace("Writing type dependencies to the cache for file {}", inputFile.key());
+    write(DECLARED_TYPES_KEY + inputFile.key(), declaredTypes);
+    write(REFERENCED_TYPES_KEY + inputFile.key(), referencedTypes);
+  }
+
+  public void copyFromPrevious(InputFile inputFile) {
+    if (!enabled) {
+      return;
+    }
+    LOG.trace("Copying type dependencies from previous cache for file {}", inputFile.key());
+    copyFromPrevious(DECLARED_TYPES_KEY + inputFile.key());
+    copyFromPrevious(REFERENCED_TYPES_KEY + inputFile.key());
+  }
+
+  @CheckForNull
+  private Set<String> read(String cacheKey) {
+    if (!enabled || !readCache.contains(cacheKey)) {
+      return null;
+    }
+    try (InputStream in = readCache.read(cacheKey)) {
+      if (in == null) {
+        return null;
+      }
+      List<String> types = CachePayloadCodec.decodeStrings(in.readAllBytes());
+      return types == null ? null : new HashSet<>(types);
+    } catch (IllegalArgumentException | IOException e) {
+      LOG.trace(String.format("Could not read key %s from the cache", cacheKey));
+      return null;
+    }
+  }
+
+  private void write(String cacheKey, Collection<String> types) {
+    try {
+      writeCache.write(cacheKey, CachePayloadCodec.encodeStrings(new ArrayList<>(types)));
+    } catch (IllegalArgumentException e) {
+      LOG.trace(String.format("Tried to write multiple times to cache key %s. Ignoring writes after the first.", cacheKey));
+    }
+  }
+
+  private void copyFromPrevious(String cacheKey) {
+    if (!readCache.contains(cacheKey)) {
+      return;
+    }
+    try {
+      writeCache.copyFromPrevious(cacheKey);
+    } catch (IllegalArgumentException e) {
+      LOG.trace(String.format("Tried to copy multiple times cache key %s. Ignoring copies after the first.", cacheKey));
+    }
+  }
+}
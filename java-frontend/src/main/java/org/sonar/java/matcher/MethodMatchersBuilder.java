@@ -18,7 +18,9 @@ package org.sonar.java.matcher;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import javax.annotation.CheckForNull;
@@ -47,16 +49,25 @@ public class MethodMatchersBuilder implements MethodMatchers.TypeBuilder, Method
   @Nullable
   private final Predicate<List<Type>> parametersPredicate;
 
+  /**
+   * Names accepted by the name predicate, or null when it is not only made of literal names.
+   */
+  @Nullable
+  private final Set<String> names;
+
   public MethodMatchersBuilder() {
     this.typePredicate = null;
     this.namePredicate = null;
     this.parametersPredicate = null;
+    this.names = Collections.emptySet();
   }
 
-  private MethodMatchersBuilder(@Nullable Predicate<Type> typePredicate, @Nullable Predicate<String> namePredicate, @Nullable Predicate<List<Type>> parametersPredicate) {
+  private MethodMatchersBuilder(@Nullable Predicate<Type> typePredicate, @Nullable Predicate<String> namePredicate, @Nullable Predicate<List<Type>> parametersPredicate,
+    @Nullable Set<String> names) {
     this.typePredicate = typePredicate;
     this.namePredicate = namePredicate;
     this.parametersPredicate = parametersPredicate;
+    this.names = names;
   }
 
   private static <T> Predicate<T> substituteAny(Predicate<T> predicate, String... elements) {
@@ -108,15 +119,21 @@ public class MethodMatchersBuilder implements MethodMatchers.TypeBuilder, Method
 
   @Override
   public NameBuilder ofType(Predicate<Type> typePredicate) {
-    return new MethodMatchersBuilder(or(this.typePredicate, typePredicate), namePredicate, parametersPredicate);
+    return new MethodMatchersBuilder(or(this.typePredicate, typePredicate), namePredicate, parametersPredicate, names);
   }
 
   @Override
   public ParametersBuilder names(String... names) {
-    return name(substituteAnyAndCreateEfficientPredicate(
+    Predicate<String> predicate = substituteAnyAndCreateEfficientPredicate(
       names,
       name -> name::equals,
-      nameList -> nameList::contains));
+      nameList -> nameList::contains);
+    Set<String> acceptedNames = null;
+    if (this.names != null && !ANY.equals(names[0])) {
+      acceptedNames = new HashSet<>(this.names);
+      acceptedNames.addAll(Arrays.asList(names));
+    }
+    return new MethodMatchersBuilder(typePredicate, or(this.namePredicate, predicate), parametersPredicate, acceptedNames);
   }
 
   @Override
@@ -131,7 +148,7 @@ public class MethodMatchersBuilder implements MethodMatchers.TypeBuilder, Method
 
   @Override
   public ParametersBuilder name(Predicate<String> namePredicate) {
-    return new MethodMatchersBuilder(typePredicate, or(this.namePredicate, namePredicate), parametersPredicate);
+    return new MethodMatchersBuilder(typePredicate, or(this.namePredicate, namePredicate), parametersPredicate, null);
   }
 
   @Override
@@ -160,7 +177,7 @@ public class MethodMatchersBuilder implements MethodMatchers.TypeBuilder, Method
 
   @Override
   public ParametersBuilder addParametersMatcher(Predicate<List<Type>> parametersPredicate) {
-    return new MethodMatchersBuilder(typePredicate, namePredicate, or(this.parametersPredicate, parametersPredicate));
+    return new MethodMatchersBuilder(typePredicate, namePredicate, or(this.parametersPredicate, parametersPredicate), names);
   }
 
   private static boolean exactMatchesParameters(List<Predicate<Type>> expectedTypes, List<Type> actualTypes) {
@@ -176,6 +193,14 @@ public class MethodMatchersBuilder implements MethodMatchers.TypeBuilder, Method
     return true;
   }
 
+  /**
+   * @return the only method names this matcher can match, or null when it can match any name
+   */
+  @CheckForNull
+  Set<String> names() {
+    return names;
+  }
+
   @Override
   public boolean matches(NewClassTree newClassTree) {
     return matches(newClassTree.methodSymbol(), null);
@@ -251,7 +276,7 @@ public class MethodMatchersBuilder implements MethodMatchers.TypeBuilder, Method
       typePredicate.test(type);
   }
 
-  private static IdentifierTree getIdentifier(MethodInvocationTree mit) {
+  static IdentifierTree getIdentifier(MethodInvocationTree mit) {
     // methodSelect can only be Tree.Kind.IDENTIFIER or Tree.Kind.MEMBER_SELECT
     if (mit.methodSelect().is(Tree.Kind.IDENTIFIER)) {
       return (IdentifierTree) mit.methodSelect();
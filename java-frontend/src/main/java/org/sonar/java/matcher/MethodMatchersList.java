@@ -17,7 +17,11 @@
 package org.sonar.java.matcher;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 import org.sonar.plugins.java.api.semantic.MethodMatchers;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.MethodInvocationTree;
@@ -25,37 +29,69 @@ import org.sonar.plugins.java.api.tree.MethodReferenceTree;
 import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
 
+/**
+ * Matches when any of its matchers matches. Matchers only accepting literal method names are indexed by name, so that
+ * only the ones accepting the name of the tested method are evaluated.
+ */
 public class MethodMatchersList implements MethodMatchers {
 
-  private List<? extends MethodMatchers> matchers;
+  private final Map<String, List<MethodMatchers>> matchersByName = new HashMap<>();
+  private final List<MethodMatchers> unindexedMatchers = new ArrayList<>();
 
   public MethodMatchersList(List<? extends MethodMatchers> matchers) {
-    this.matchers = new ArrayList<>(matchers);
+    matchers.forEach(this::add);
+  }
+
+  private void add(MethodMatchers matcher) {
+    if (matcher instanceof MethodMatchersList list) {
+      list.matchersByName.forEach((name, namedMatchers) -> matchersByName.computeIfAbsent(name, k -> new ArrayList<>()).addAll(namedMatchers));
+      unindexedMatchers.addAll(list.unindexedMatchers);
+    } else if (matcher instanceof MethodMatchersBuilder builder && builder.names() != null) {
+      builder.names().forEach(name -> matchersByName.computeIfAbsent(name, k -> new ArrayList<>()).add(builder));
+    } else if (!(matcher instanceof NoneMethodMatchers)) {
+      unindexedMatchers.add(matcher);
+    }
   }
 
   @Override
   public boolean matches(NewClassTree newClassTree) {
-    return matchers.stream().anyMatch(matcher -> matcher.matches(newClassTree));
+    return matches(newClassTree.methodSymbol(), matcher -> matcher.matches(newClassTree));
   }
 
   @Override
   public boolean matches(MethodInvocationTree mit) {
-    return matchers.stream().anyMatch(matcher -> matcher.matches(mit));
+    return matches(MethodMatchersBuilder.getIdentifier(mit).symbol(), matcher -> matcher.matches(mit));
   }
 
   @Override
   public boolean matches(MethodTree methodTree) {
-    return matchers.stream().anyMatch(matcher -> matcher.matches(methodTree));
+    return matches(methodTree.symbol(), matcher -> matcher.matches(methodTree));
   }
 
   @Override
   public boolean matches(MethodReferenceTree methodReferenceTree) {
-    return matchers.stream().anyMatch(matcher -> matcher.matches(methodReferenceTree));
+    return matches(methodReferenceTree.method().symbol(), matcher -> matcher.matches(methodReferenceTree));
   }
 
   @Override
   public boolean matches(Symbol symbol) {
-    return matchers.stream().anyMatch(matcher -> matcher.matches(symbol));
+    return matches(symbol, matcher -> matcher.matches(symbol));
+  }
+
+  private boolean matches(Symbol symbol, Predicate<MethodMatchers> matches) {
+    // indexed matchers are built by MethodMatchersBuilder, which only matches method symbols
+    List<MethodMatchers> candidates = symbol.isMethodSymbol() ? matchersByName.getOrDefault(symbol.name(), Collections.emptyList()) : Collections.emptyList();
+    for (MethodMatchers candidate : candidates) {
+      if (matches.test(candidate)) {
+        return true;
+      }
+    }
+    for (MethodMatchers matcher : unindexedMatchers) {
+      if (matches.test(matcher)) {
+        return true;
+      }
+    }
+    return false;
   }
 
 }
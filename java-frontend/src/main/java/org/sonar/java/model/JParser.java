@@ -290,6 +290,13 @@ public class JParser {
   }
 
   static JavaTree.CompilationUnitTreeImpl convert(String version, String unitName, String source, CompilationUnit astNode) {
+    return convert(version, unitName, source, astNode, new JSharedSema());
+  }
+
+  /**
+   * @param shared semantic information shared by the files parsed in the same ECJ environment
+   */
+  static JavaTree.CompilationUnitTreeImpl convert(String version, String unitName, String source, CompilationUnit astNode, JSharedSema shared) {
     List<IProblem> errors = Stream.of(astNode.getProblems()).filter(IProblem::isError).toList();
     Optional<IProblem> possibleSyntaxError = errors.stream().filter(IS_SYNTAX_ERROR).findFirst();
     LineColumnConverter lineColumnConverter = new LineColumnConverter(source);
@@ -309,7 +316,7 @@ public class JParser {
       .collect(Collectors.toSet());
 
     JParser converter = new JParser();
-    converter.sema = new JSema(astNode.getAST());
+    converter.sema = new JSema(astNode.getAST(), shared);
     converter.sema.undefinedTypes.addAll(undefinedTypes);
     converter.compilationUnit = astNode;
     converter.tokenManager = createTokenManager(version, unitName, source);
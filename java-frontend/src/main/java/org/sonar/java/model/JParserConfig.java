@@ -17,18 +17,26 @@
 package org.sonar.java.model;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.BooleanSupplier;
 import java.util.stream.StreamSupport;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
@@ -54,11 +62,13 @@ public abstract class JParserConfig {
   private static final Logger LOG = LoggerFactory.getLogger(JParserConfig.class);
 
   private static final String MAXIMUM_ECJ_WARNINGS = "42000";
+  private static final String COMPILER_PROBLEM_OPTIONS_PREFIX = JavaCore.PLUGIN_ID + ".compiler.problem.";
   private static final Set<String> JRE_JARS = new HashSet<>(Arrays.asList("rt.jar", "jrt-fs.jar", "android.jar"));
 
   final JavaVersion javaVersion;
   final List<File> classpath;
   final boolean shouldIgnoreUnnamedModuleForSplitPackage;
+  Set<JProblem.Type> enabledWarnings = EnumSet.allOf(JProblem.Type.class);
 
   private JParserConfig(JavaVersion javaVersion, List<File> classpath, boolean shouldIgnoreUnnamedModuleForSplitPackage) {
     this.javaVersion = javaVersion;
@@ -84,13 +94,34 @@ public abstract class JParserConfig {
     }
 
     public JParserConfig create(JavaVersion javaVersion, List<File> classpath, boolean shouldIgnoreUnnamedModuleForSplitPackage) {
-      if (shouldIgnoreUnnamedModuleForSplitPackage) {
-        LOG.info("The Java analyzer will ignore the unnamed module for split packages.");
-      }
+      logIgnoredUnnamedModule(shouldIgnoreUnnamedModuleForSplitPackage);
       return supplier.apply(javaVersion, classpath, shouldIgnoreUnnamedModuleForSplitPackage);
     }
   }
 
+  /**
+   * Same as {@code Mode.BATCH.create(...)}, but typed as a {@link Batch}, which can also resolve files ahead of their analysis.
+   */
+  public static Batch createBatch(JavaVersion javaVersion, List<File> classpath, boolean shouldIgnoreUnnamedModuleForSplitPackage) {
+    logIgnoredUnnamedModule(shouldIgnoreUnnamedModuleForSplitPackage);
+    return new Batch(javaVersion, classpath, shouldIgnoreUnnamedModuleForSplitPackage);
+  }
+
+  private static void logIgnoredUnnamedModule(boolean shouldIgnoreUnnamedModuleForSplitPackage) {
+    if (shouldIgnoreUnnamedModuleForSplitPackage) {
+      LOG.info("The Java analyzer will ignore the unnamed module for split packages.");
+    }
+  }
+
+  /**
+   * Only the given types of warnings are computed by ECJ, all the other optional problems are ignored.
+   * By default, all the types of warnings known by {@link JProblem.Type} are enabled.
+   */
+  public JParserConfig setEnabledWarnings(Set<JProblem.Type> enabledWarnings) {
+    this.enabledWarnings = enabledWarnings;
+    return this;
+  }
+
   public static class Result {
     private final Exception e;
     private final JavaTree.CompilationUnitTreeImpl t;
@@ -124,9 +155,12 @@ public abstract class JParserConfig {
     if (shouldEnablePreviewFlag(javaVersion)) {
       options.put(JavaCore.COMPILER_PB_ENABLE_PREVIEW_FEATURES, "enabled");
     }
-    // enabling all supported compiler warnings
-    JProblem.Type.compilerOptions()
-      .forEach(option -> options.put(option, "warning"));
+    // ECJ enables many optional warnings by default, only the ones consumed by visitors are computed
+    options.replaceAll((option, severity) -> isOptionalProblemOption(option, severity) ? JavaCore.IGNORE : severity);
+    enabledWarnings.stream()
+      .map(JProblem.Type::compilerOptionKey)
+      .filter(Objects::nonNull)
+      .forEach(option -> options.put(option, JavaCore.WARNING));
 
     astParser.setCompilerOptions(options);
 
@@ -143,65 +177,46 @@ public abstract class JParserConfig {
     return astParser;
   }
 
-  @VisibleForTesting
-  static class Batch extends JParserConfig {
+  private static boolean isOptionalProblemOption(String option, String severity) {
+    return option.startsWith(COMPILER_PROBLEM_OPTIONS_PREFIX) && (JavaCore.WARNING.equals(severity) || JavaCore.INFO.equals(severity));
+  }
+
+  public static class Batch extends JParserConfig {
 
     Batch(JavaVersion javaVersion, List<File> classpath, boolean shouldIgnoreUnnamedModuleForSplitPackage) {
       super(javaVersion, classpath, shouldIgnoreUnnamedModuleForSplitPackage);
     }
 
+    @Override
+    public Batch setEnabledWarnings(Set<JProblem.Type> enabledWarnings) {
+      super.setEnabledWarnings(enabledWarnings);
+      return this;
+    }
+
     @Override
     public void parse(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled,
       AnalysisProgress analysisProgress, BiConsumer<InputFile, Result> action) {
 
-      List<String> sourceFilePaths = new ArrayList<>();
-      Set<InputFile> notYetAnalyzedFiles = new LinkedHashSet<>();
-      List<String> encodings = new ArrayList<>();
-      Map<File, InputFile> inputs = new HashMap<>();
-      for (InputFile inputFile : inputFiles) {
-        String sourceFilePath = inputFile.absolutePath();
-        inputs.put(new File(sourceFilePath), inputFile);
-        sourceFilePaths.add(sourceFilePath);
-        encodings.add(inputFile.charset().name());
-        notYetAnalyzedFiles.add(inputFile);
-      }
+      BatchFiles batchFiles = new BatchFiles(inputFiles);
+      Set<InputFile> notYetAnalyzedFiles = new LinkedHashSet<>(batchFiles.inputs.values());
+      int fileCount = batchFiles.sourceFilePaths.size();
 
       ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
+      JSharedSema sharedSema = new JSharedSema();
       ProgressMonitor monitor = new ProgressMonitor(isCanceled, analysisProgress);
       PerformanceMeasure.Duration batchPerformance = PerformanceMeasure.start("ParseAsBatch");
       try {
-        astParser().createASTs(sourceFilePaths.toArray(new String[0]), encodings.toArray(new String[0]), new String[0], new FileASTRequestor() {
-          @Override
-          public void acceptAST(String sourceFilePath, CompilationUnit ast) {
-            PerformanceMeasure.Duration convertDuration = PerformanceMeasure.start("Convert");
-            InputFile inputFile = inputs.get(new File(sourceFilePath));
-            executionTimeReport.start(inputFile);
-            Result result;
-            try {
-              result = new Result(JParser.convert(javaVersion.effectiveJavaVersionAsString(), inputFile.filename(), inputFile.contents(), ast));
-            } catch (Exception e) {
-              result = new Result(e);
-            }
-            convertDuration.stop();
-            PerformanceMeasure.Duration analyzeDuration = PerformanceMeasure.start("Analyze");
-            action.accept(inputFile, result);
-
-            notYetAnalyzedFiles.remove(inputFile);
-            executionTimeReport.end();
-            analyzeDuration.stop();
-          }
-        }, monitor);
+        createASTs(batchFiles, monitor, (inputFile, ast) -> {
+          convertAndAnalyze(inputFile, ast, sharedSema, executionTimeReport, action);
+          notYetAnalyzedFiles.remove(inputFile);
+        });
         if (!notYetAnalyzedFiles.isEmpty()) {
-          String message = String.format("%d/%d files were not analyzed by the batch mode", notYetAnalyzedFiles.size(), sourceFilePaths.size());
-          throw new AnalysisException(message);
+          throw new AnalysisException(notAnalyzedMessage(notYetAnalyzedFiles.size(), fileCount));
         }
       } catch (OperationCanceledException e) {
         throw e;
       } catch (RuntimeException e) {
-        LOG.warn("Unexpected {}: {}", e.getClass().getSimpleName(), e.getMessage());
-        if (!notYetAnalyzedFiles.isEmpty()) {
-          fallbackToFileByFileMode(notYetAnalyzedFiles.stream().toList(), isCanceled, action);
-        }
+        fallbackToFileByFileMode(e, notYetAnalyzedFiles, isCanceled, action);
       } finally {
         batchPerformance.stop();
         // ExecutionTimeReport will not include the parsing time by file when using batch mode.
@@ -210,9 +225,59 @@ public abstract class JParserConfig {
       }
     }
 
-    private void fallbackToFileByFileMode(List<InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action) {
-      LOG.warn("Fallback to file by file analysis for {} files", inputFiles.size());
-      for (InputFile inputFile : inputFiles) {
+    /**
+     * Runs ECJ on the given files, without converting nor analyzing them, so that this can be done on another thread than the analysis.
+     * The returned files are then converted and analyzed on the analysis thread, see {@link ResolvedBatch#analyze}.
+     */
+    public ResolvedBatch resolve(List<? extends InputFile> inputFiles, BooleanSupplier isCanceled) {
+      BatchFiles batchFiles = new BatchFiles(inputFiles);
+      ResolvedBatch batch = new ResolvedBatch(this, inputFiles);
+      try {
+        createASTs(batchFiles, new CancelableProgressMonitor(isCanceled), (inputFile, ast) -> batch.resolvedFiles.add(new ResolvedFile(inputFile, ast)));
+      } catch (OperationCanceledException e) {
+        throw e;
+      } catch (RuntimeException e) {
+        batch.failure = e;
+      }
+      return batch;
+    }
+
+    private void createASTs(BatchFiles batchFiles, IProgressMonitor monitor, BiConsumer<InputFile, CompilationUnit> astAction) {
+      String[] sourceFilePaths = batchFiles.sourceFilePaths.toArray(new String[0]);
+      String[] encodings = batchFiles.encodings.toArray(new String[0]);
+      astParser().createASTs(sourceFilePaths, encodings, new String[0], new FileASTRequestor() {
+        @Override
+        public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+          astAction.accept(batchFiles.inputs.get(new File(sourceFilePath)), ast);
+        }
+      }, monitor);
+    }
+
+    private void convertAndAnalyze(InputFile inputFile, CompilationUnit ast, JSharedSema sharedSema, ExecutionTimeReport executionTimeReport,
+      BiConsumer<InputFile, Result> action) {
+      PerformanceMeasure.Duration convertDuration = PerformanceMeasure.start("Convert");
+      executionTimeReport.start(inputFile);
+      Result result;
+      try {
+        result = new Result(JParser.convert(javaVersion.effectiveJavaVersionAsString(), inputFile.filename(), inputFile.contents(), ast, sharedSema));
+      } catch (Exception e) {
+        result = new Result(e);
+      }
+      convertDuration.stop();
+      PerformanceMeasure.Duration analyzeDuration = PerformanceMeasure.start("Analyze");
+      action.accept(inputFile, result);
+      executionTimeReport.end();
+      analyzeDuration.stop();
+    }
+
+    private void fallbackToFileByFileMode(RuntimeException e, Collection<InputFile> notYetAnalyzedFiles, BooleanSupplier isCanceled,
+      BiConsumer<InputFile, Result> action) {
+      LOG.warn("Unexpected {}: {}", e.getClass().getSimpleName(), e.getMessage());
+      if (notYetAnalyzedFiles.isEmpty()) {
+        return;
+      }
+      LOG.warn("Fallback to file by file analysis for {} files", notYetAnalyzedFiles.size());
+      for (InputFile inputFile : List.copyOf(notYetAnalyzedFiles)) {
         if (isCanceled.getAsBoolean()) {
           break;
         }
@@ -220,6 +285,95 @@ public abstract class JParserConfig {
       }
     }
 
+    private static String notAnalyzedMessage(int notAnalyzedFileCount, int fileCount) {
+      return String.format("%d/%d files were not analyzed by the batch mode", notAnalyzedFileCount, fileCount);
+    }
+
+  }
+
+  private static class BatchFiles {
+    private final List<String> sourceFilePaths = new ArrayList<>();
+    private final List<String> encodings = new ArrayList<>();
+    private final Map<File, InputFile> inputs = new LinkedHashMap<>();
+
+    private BatchFiles(Iterable<? extends InputFile> inputFiles) {
+      for (InputFile inputFile : inputFiles) {
+        String sourceFilePath = inputFile.absolutePath();
+        inputs.put(new File(sourceFilePath), inputFile);
+        sourceFilePaths.add(sourceFilePath);
+        encodings.add(inputFile.charset().name());
+      }
+    }
+  }
+
+  /**
+   * Files of a batch on which ECJ has already run, waiting to be converted and analyzed. The ECJ environment of the batch is kept until
+   * all its files have been analyzed, as the semantic model of the converted trees lazily relies on it.
+   */
+  public static final class ResolvedBatch {
+    private final Batch config;
+    private final Set<InputFile> notYetAnalyzedFiles;
+    private final Queue<ResolvedFile> resolvedFiles = new ArrayDeque<>();
+    private final JSharedSema sharedSema = new JSharedSema();
+    private RuntimeException failure = null;
+
+    private ResolvedBatch(Batch config, List<? extends InputFile> inputFiles) {
+      this.config = config;
+      this.notYetAnalyzedFiles = new LinkedHashSet<>(inputFiles);
+    }
+
+    public int size() {
+      return notYetAnalyzedFiles.size();
+    }
+
+    /**
+     * Converts and analyzes the files of the batch, in the order in which ECJ has resolved them, then falls back to the file by file mode
+     * for the files that ECJ could not resolve. Files are released once analyzed, and the batch cannot be analyzed twice.
+     */
+    public void analyze(BooleanSupplier isCanceled, AnalysisProgress analysisProgress, BiConsumer<InputFile, Result> action) {
+      int fileCount = notYetAnalyzedFiles.size();
+      ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
+      ProgressMonitor monitor = new ProgressMonitor(isCanceled, analysisProgress);
+      monitor.beginTask("Analyze", fileCount);
+      try {
+        for (ResolvedFile resolvedFile = resolvedFiles.poll(); resolvedFile != null; resolvedFile = resolvedFiles.poll()) {
+          if (monitor.isCanceled()) {
+            throw new OperationCanceledException();
+          }
+          config.convertAndAnalyze(resolvedFile.inputFile(), resolvedFile.ast(), sharedSema, executionTimeReport, action);
+          notYetAnalyzedFiles.remove(resolvedFile.inputFile());
+          monitor.worked(1);
+        }
+        if (failure == null && !notYetAnalyzedFiles.isEmpty()) {
+          failure = new AnalysisException(Batch.notAnalyzedMessage(notYetAnalyzedFiles.size(), fileCount));
+        }
+        if (failure != null) {
+          config.fallbackToFileByFileMode(failure, notYetAnalyzedFiles, isCanceled, action);
+        }
+      } finally {
+        executionTimeReport.reportAsBatch();
+        monitor.done();
+      }
+    }
+  }
+
+  private record ResolvedFile(InputFile inputFile, CompilationUnit ast) {
+  }
+
+  /**
+   * Only lets ECJ check whether the analysis has been cancelled, without reporting any progress.
+   */
+  private static class CancelableProgressMonitor extends NullProgressMonitor {
+    private final BooleanSupplier isCanceled;
+
+    CancelableProgressMonitor(BooleanSupplier isCanceled) {
+      this.isCanceled = isCanceled;
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return isCanceled.getAsBoolean();
+    }
   }
 
   private static class FileByFile extends JParserConfig {
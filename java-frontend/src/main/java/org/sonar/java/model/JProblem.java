@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.sonar.plugins.java.api.tree.Tree;
@@ -121,6 +122,14 @@ public class JProblem {
     public Set<Tree.Kind> getKinds() {
       return kinds;
     }
+
+    /**
+     * @return the ECJ option controlling the severity of this type of warning, null for problems which are always reported as errors
+     */
+    @CheckForNull
+    public String compilerOptionKey() {
+      return compilerOptionKey;
+    }
   }
 
 }
@@ -50,9 +50,15 @@ public final class JSema implements Sema {
   private final Map<Symbol.TypeSymbol, JInitializerBlockSymbol> staticInitializerBlockSymbols = new HashMap<>();
   private final Map<IAnnotationBinding, JSymbolMetadata.JAnnotationInstance> annotations = new HashMap<>();
   private final Map<String, Type> nameToTypeCache = new HashMap<>();
+  final JSharedSema shared;
 
   JSema(AST ast) {
+    this(ast, new JSharedSema());
+  }
+
+  JSema(AST ast, JSharedSema shared) {
     this.ast = ast;
+    this.shared = shared;
   }
 
   public JType type(ITypeBinding typeBinding) {
@@ -135,7 +141,7 @@ public final class JSema implements Sema {
 
     ITypeBinding typeBinding = ast.resolveWellKnownType(name);
     if (typeBinding == null) {
-      typeBinding = ASTUtils.resolveType(ast, name);
+      typeBinding = ASTUtils.resolveType(ast, name, shared.lookups);
       if (typeBinding == null) {
         return null;
       }
@@ -144,7 +150,7 @@ public final class JSema implements Sema {
   }
 
   IAnnotationBinding[] resolvePackageAnnotations(String packageName) {
-    return ASTUtils.resolvePackageAnnotations(ast, packageName);
+    return ASTUtils.resolvePackageAnnotations(ast, packageName, shared.lookups);
   }
 
   public Runnable getEnvironmentCleaner() {
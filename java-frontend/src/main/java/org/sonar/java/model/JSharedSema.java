@@ -0,0 +1,31 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.model;
+
+import org.eclipse.jdt.core.dom.LookupEnvironmentCache;
+
+/**
+ * Semantic information which does not depend on the compilation unit, shared by the {@link JSema} of the files parsed in the same
+ * ECJ environment, for example the files of an ECJ batch.
+ */
+final class JSharedSema {
+
+  final JTypeHierarchy hierarchy = new JTypeHierarchy();
+
+  final LookupEnvironmentCache lookups = new LookupEnvironmentCache();
+
+}
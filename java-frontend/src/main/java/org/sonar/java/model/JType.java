@@ -56,6 +56,11 @@ final class JType implements Type, Type.ArrayType {
    */
   private List<Type> typeArguments;
 
+  /**
+   * Cache for {@link #closure()}.
+   */
+  private JTypeHierarchy.Closure closure;
+
   JType(JSema sema, ITypeBinding typeBinding) {
     this.sema = Objects.requireNonNull(sema);
     this.typeBinding = Objects.requireNonNull(typeBinding);
@@ -74,8 +79,32 @@ final class JType implements Type, Type.ArrayType {
 
   @Override
   public boolean isSubtypeOf(Type superType) {
-    return !superType.isUnknown()
-      && isSubtype(this.typeBinding, ((JType) superType).typeBinding);
+    if (superType.isUnknown()) {
+      return false;
+    }
+    JType jSuperType = (JType) superType;
+    JTypeHierarchy.Closure knownResults = closure();
+    int superTypeId = jSuperType.closure().id;
+    if (knownResults == JTypeHierarchy.NOT_SHARED || superTypeId < 0) {
+      return isSubtype(this.typeBinding, jSuperType.typeBinding);
+    }
+    int knownResult = knownResults.get(superTypeId);
+    if (knownResult >= 0) {
+      return knownResult == 1;
+    }
+    boolean result = isSubtype(this.typeBinding, jSuperType.typeBinding);
+    knownResults.set(superTypeId, result);
+    return result;
+  }
+
+  /**
+   * @return the results of the subtype tests of this type, shared by the files parsed in the same ECJ environment
+   */
+  private JTypeHierarchy.Closure closure() {
+    if (closure == null) {
+      closure = sema.shared.hierarchy.closure(typeBinding);
+    }
+    return closure;
   }
 
   private static boolean isSubtype(ITypeBinding left, ITypeBinding right) {
@@ -0,0 +1,106 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.model;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.sonar.java.annotations.VisibleForTesting;
+
+/**
+ * Results of the subtype tests between the types of the files parsed by a same ECJ environment.
+ * Types are identified by their binding key, which is stable across the files of an ECJ batch, and get a dense id.
+ * The results known for a type are stored in bitsets indexed by the ids of the tested super types.
+ * <p>
+ * A hierarchy belongs to the {@link JSharedSema} of a batch, or of a file when files are parsed one by one, and is released with it.
+ * Its memory is bounded by the number of types which get an id: the subtype tests of the other types are not memoized.
+ * It is not thread-safe, the files of a batch being converted and analyzed on a single thread.
+ */
+final class JTypeHierarchy {
+
+  /**
+   * Closure of the types which are not shared, because they may have the same key in different files while not being the same type,
+   * or because the maximum number of shared types has been reached.
+   */
+  static final Closure NOT_SHARED = new Closure(-1);
+
+  /**
+   * At most 2 bits per pair of shared types, i.e. 1 MB for the subtype tests between all the shared types.
+   */
+  private static final int MAX_SHARED_TYPES = 2048;
+
+  private final Map<String, Closure> closures = new HashMap<>();
+  private final int maxSharedTypes;
+
+  JTypeHierarchy() {
+    this(MAX_SHARED_TYPES);
+  }
+
+  @VisibleForTesting
+  JTypeHierarchy(int maxSharedTypes) {
+    this.maxSharedTypes = maxSharedTypes;
+  }
+
+  Closure closure(ITypeBinding typeBinding) {
+    if (typeBinding.isRecovered() || typeBinding.isCapture() || typeBinding.isNullType()) {
+      return NOT_SHARED;
+    }
+    String key = typeBinding.getKey();
+    if (key == null) {
+      return NOT_SHARED;
+    }
+    Closure closure = closures.get(key);
+    if (closure == null) {
+      if (closures.size() >= maxSharedTypes) {
+        return NOT_SHARED;
+      }
+      closure = new Closure(closures.size());
+      closures.put(key, closure);
+    }
+    return closure;
+  }
+
+  /**
+   * Known results of the subtype tests of a type, indexed by the id of the super type.
+   */
+  static final class Closure {
+    final int id;
+    private final BitSet tested = new BitSet();
+    private final BitSet subtypes = new BitSet();
+
+    private Closure(int id) {
+      this.id = id;
+    }
+
+    /**
+     * @return 1 if the type is a subtype of the given super type, 0 if it is not, and -1 if it was not tested yet
+     */
+    int get(int superTypeId) {
+      if (!tested.get(superTypeId)) {
+        return -1;
+      }
+      return subtypes.get(superTypeId) ? 1 : 0;
+    }
+
+    void set(int superTypeId, boolean isSubtype) {
+      tested.set(superTypeId);
+      subtypes.set(superTypeId, isSubtype);
+    }
+  }
+
+}
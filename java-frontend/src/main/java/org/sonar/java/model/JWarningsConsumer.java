@@ -0,0 +1,28 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.model;
+
+import java.util.Set;
+
+/**
+ * Visitors reading the ECJ warnings attached to {@link JavaTree.CompilationUnitTreeImpl#warnings(JProblem.Type)} have to declare
+ * which types of warnings they consume: ECJ only reports the warnings required by at least one active visitor.
+ */
+public interface JWarningsConsumer {
+
+  Set<JProblem.Type> requiredWarnings();
+}
@@ -0,0 +1,92 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.model;
+
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+import org.sonar.plugins.java.api.tree.ExpressionTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Types declared in a file, and types it has been resolved against. The referenced types include the supertypes of the
+ * types used in the file, as a change in a supertype can change the members inherited by its subtypes.
+ * Types of the JDK are ignored, as they cannot change from one analysis of the project to the next one.
+ */
+public record TypeDependencies(Set<String> declaredTypes, Set<String> referencedTypes) {
+
+  public static TypeDependencies of(CompilationUnitTree tree) {
+    Collector collector = new Collector();
+    tree.accept(collector);
+    collector.referencedTypes.removeAll(collector.declaredTypes);
+    return new TypeDependencies(collector.declaredTypes, collector.referencedTypes);
+  }
+
+  private static class Collector extends BaseTreeVisitor {
+    private final Set<String> declaredTypes = new HashSet<>();
+    private final Set<String> referencedTypes = new HashSet<>();
+
+    @Override
+    public void visitClass(ClassTree tree) {
+      Type type = tree.symbol().type();
+      if (type != null && !type.isUnknown()) {
+        declaredTypes.add(type.fullyQualifiedName());
+      }
+      super.visitClass(tree);
+    }
+
+    @Override
+    protected void scan(@Nullable Tree tree) {
+      if (tree instanceof ExpressionTree expressionTree) {
+        addReferencedType(expressionTree.symbolType());
+      }
+      super.scan(tree);
+    }
+
+    private void addReferencedType(@Nullable Type type) {
+      if (type == null) {
+        return;
+      }
+      if (type.isArray()) {
+        addReferencedType(((Type.ArrayType) type).elementType());
+        return;
+      }
+      if (!type.isClass() || type.isUnknown()) {
+        return;
+      }
+      if (type.isParameterized()) {
+        type.typeArguments().forEach(this::addReferencedType);
+      }
+      Type erasure = type.erasure();
+      String fullyQualifiedName = erasure.fullyQualifiedName();
+      if (!isJdkType(fullyQualifiedName) && referencedTypes.add(fullyQualifiedName)) {
+        Symbol.TypeSymbol symbol = erasure.symbol();
+        addReferencedType(symbol.superClass());
+        symbol.interfaces().forEach(this::addReferencedType);
+      }
+    }
+
+    private static boolean isJdkType(String fullyQualifiedName) {
+      return fullyQualifiedName.startsWith("java.") || fullyQualifiedName.startsWith("javax.");
+    }
+  }
+}
@@ -20,10 +20,12 @@ import com.sonar.sslr.api.RecognitionException;
 import java.io.File;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -38,11 +40,13 @@ import org.sonar.java.AnalysisException;
 import org.sonar.java.CheckFailureException;
 import org.sonar.java.ExceptionHandler;
 import org.sonar.java.IllegalRuleParameterException;
+import org.sonar.java.RuleCostReport;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.annotations.VisibleForTesting;
 import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
 import org.sonar.java.caching.CacheContextImpl;
+import org.sonar.java.caching.TypeDependencyCache;
 import org.sonar.java.exceptions.ApiMismatchException;
 import org.sonar.java.exceptions.ThrowableUtils;
 import org.sonar.plugins.java.api.InputFileScannerContext;
@@ -58,6 +62,7 @@ import org.sonar.plugins.java.api.internal.EndOfAnalysis;
 import org.sonar.plugins.java.api.semantic.Sema;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.Tree.Kind;
 import org.sonarsource.performance.measure.PerformanceMeasure;
@@ -69,6 +74,7 @@ public class VisitorsBridge {
   private final Iterable<? extends JavaCheck> visitors;
   private final List<JavaFileScanner> allScanners;
   private final List<JavaFileScanner> scannersThatCannotBeSkipped;
+  private final List<JavaFileScanner> scannersSkippedOnUnchangedFiles;
   private final SonarComponents sonarComponents;
   protected InputFile currentFile;
   protected final JavaVersion javaVersion;
@@ -78,6 +84,8 @@ public class VisitorsBridge {
   private int skippedFileCount = 0;
   @VisibleForTesting
   CacheContext cacheContext;
+  @Nullable
+  private RuleCostReport ruleCostReport;
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -93,6 +101,7 @@ public class VisitorsBridge {
     this.visitors = visitors;
     this.allScanners = new ArrayList<>();
     this.scannersThatCannotBeSkipped = new ArrayList<>();
+    this.scannersSkippedOnUnchangedFiles = new ArrayList<>();
     this.classpath = projectClasspath;
     this.sonarComponents = sonarComponents;
     this.cacheContext = CacheContextImpl.of(sonarComponents);
@@ -104,10 +113,14 @@ public class VisitorsBridge {
   private void updateScanners() {
     allScanners.clear();
     scannersThatCannotBeSkipped.clear();
+    scannersSkippedOnUnchangedFiles.clear();
 
     allScanners.addAll(filterVisitors(visitors, this::isVisitorJavaVersionCompatible));
     if (canSkipScanningOfUnchangedFiles()) {
       scannersThatCannotBeSkipped.addAll(filterVisitors(visitors, this::isUnskippableVisitor));
+      StreamSupport.stream(visitors.spliterator(), false)
+        .filter(visitor -> visitor instanceof JavaFileScanner && isVisitorJavaVersionCompatible(visitor) && !isUnskippableVisitor(visitor))
+        .forEach(visitor -> scannersSkippedOnUnchangedFiles.add((JavaFileScanner) visitor));
     }
   }
 
@@ -148,6 +161,19 @@ public class VisitorsBridge {
       javaVersionAwareVisitor.isCompatibleWithJavaVersion(javaVersion);
   }
 
+  /**
+   * @return the types of ECJ warnings consumed by the active {@link JWarningsConsumer}s
+   */
+  public Set<JProblem.Type> requiredWarnings() {
+    Set<JProblem.Type> requiredWarnings = EnumSet.noneOf(JProblem.Type.class);
+    StreamSupport.stream(visitors.spliterator(), false)
+      .filter(this::isVisitorJavaVersionCompatible)
+      .filter(JWarningsConsumer.class::isInstance)
+      .map(JWarningsConsumer.class::cast)
+      .forEach(consumer -> requiredWarnings.addAll(consumer.requiredWarnings()));
+    return requiredWarnings;
+  }
+
   static boolean canVisitorBeSkippedOnUnchangedFiles(Object visitor) {
     return !(visitor instanceof EndOfAnalysis) && visitor.getClass().getCanonicalName().startsWith("org.sonar.java.checks.");
   }
@@ -220,6 +246,9 @@ public class VisitorsBridge {
       LOG.trace("Scanners that do not require parsing of {}: {}", inputFile, scannersNotRequiringParsing);
       LOG.debug("Scanners that require parsing of {}: {}", inputFile, scannersRequiringParsing);
 
+      if (allScansSucceeded) {
+        recordSkippedScanners(sonarComponents.ruleCostReport());
+      }
       return allScansSucceeded;
     } else {
       return false;
@@ -227,8 +256,10 @@ public class VisitorsBridge {
   }
 
   public void visitFile(@Nullable Tree parsedTree, boolean fileCanBeSkipped) {
+    ruleCostReport = sonarComponents != null ? sonarComponents.ruleCostReport() : null;
     if (fileCanBeSkipped) {
       skippedFileCount++;
+      recordSkippedScanners(ruleCostReport);
     } else {
       fullyScannedFileCount++;
     }
@@ -245,6 +276,12 @@ public class VisitorsBridge {
     }
     symbolTableDuration.stop();
 
+    if (fileParsed && !fileCanBeSkipped) {
+      PerformanceMeasure.Duration typeDependenciesDuration = PerformanceMeasure.start("TypeDependencies");
+      recordTypeDependencies(tree);
+      typeDependenciesDuration.stop();
+    }
+
     JavaFileScannerContext javaFileScannerContext = createScannerContext(tree, tree.sema, sonarComponents, fileParsed);
     var scanners = getScanners(fileCanBeSkipped);
 
@@ -269,32 +306,55 @@ public class VisitorsBridge {
   }
 
   private void runScanner(JavaFileScannerContext javaFileScannerContext, JavaFileScanner scanner) throws CheckFailureException {
-    runScanner(() -> scanner.scanFile(javaFileScannerContext), scanner);
+    RuleCostReport costReport = ruleCostReport;
+    if (costReport == null || scanner instanceof IssuableSubscriptionVisitorsRunner) {
+      // subscription visitors are measured individually by the runner
+      runScanner(() -> scanner.scanFile(javaFileScannerContext), scanner);
+      return;
+    }
+    long cpuTime = RuleCostReport.currentThreadCpuTime();
+    long allocatedBytes = RuleCostReport.currentThreadAllocatedBytes();
+    try {
+      runScanner(() -> scanner.scanFile(javaFileScannerContext), scanner);
+    } finally {
+      costReport.addCost(scanner, RuleCostReport.currentThreadCpuTime() - cpuTime, RuleCostReport.currentThreadAllocatedBytes() - allocatedBytes);
+    }
+  }
+
+  private void recordSkippedScanners(@Nullable RuleCostReport costReport) {
+    if (costReport != null) {
+      scannersSkippedOnUnchangedFiles.forEach(costReport::addSkippedFile);
+    }
   }
 
   private void runScanner(Runnable action, JavaFileScanner scanner) throws CheckFailureException {
     try {
       action.run();
-    } catch (IllegalRuleParameterException e) {
+    } catch (RuntimeException e) {
+      throw checkFailure(e, scanner);
+    }
+  }
+
+  private CheckFailureException checkFailure(RuntimeException e, JavaFileScanner scanner) {
+    if (e instanceof IllegalRuleParameterException) {
       // bad configuration of a rule parameter, we want to fail analysis fast.
       throw new AnalysisException("Bad configuration of rule parameter", e);
-    } catch (Exception e) {
-      Throwable rootCause = ThrowableUtils.getRootCause(e);
-      if (rootCause instanceof InterruptedIOException
-        || rootCause instanceof InterruptedException
-        || rootCause instanceof CancellationException
-        || analysisCancelled()) {
-        throw e;
-      }
+    }
+    Throwable rootCause = ThrowableUtils.getRootCause(e);
+    if (rootCause instanceof InterruptedIOException
+      || rootCause instanceof InterruptedException
+      || rootCause instanceof CancellationException
+      || analysisCancelled()) {
+      throw e;
+    }
 
-      String message = String.format(
-        "Unable to run check %s - %s on file '%s', To help improve the SonarSource Java Analyzer, please report this problem to SonarSource: see https://community.sonarsource.com/",
-        scanner.getClass(), ruleKey(scanner), currentFile);
+    String message = String.format(
+      "Unable to run check %s - %s on file '%s', To help improve the SonarSource Java Analyzer, please report this problem to SonarSource: see https://community.sonarsource.com/",
+      scanner.getClass(), ruleKey(scanner), currentFile);
 
-      LOG.error(message, e);
+    LOG.error(message, e);
 
-      throw new CheckFailureException(message, e);
-    }
+    return new CheckFailureException(message, e);
   }
 
   private boolean analysisCancelled() {
@@ -350,6 +410,21 @@ public class VisitorsBridge {
     }
   }
 
+  /**
+   * Stores the types the file depends on, so that the next analysis can reanalyze it if one of them changes.
+   */
+  private void recordTypeDependencies(JavaTree.CompilationUnitTreeImpl tree) {
+    if (sonarComponents != null
+      && !sonarComponents.isSonarLintContext()
+      && cacheContext.isCacheEnabled()
+      && sonarComponents.isTypeDependencyTrackingEnabled()
+      && !(currentFile instanceof GeneratedFile)
+      && tree.sema != null) {
+      TypeDependencies typeDependencies = TypeDependencies.of(tree);
+      new TypeDependencyCache(sonarComponents).write(currentFile, typeDependencies.declaredTypes(), typeDependencies.referencedTypes());
+    }
+  }
+
   private List<JavaFileScanner> getScanners(boolean supportedScannersCanBeSkippedForThisFile) {
     return supportedScannersCanBeSkippedForThisFile ? scannersThatCannotBeSkipped : allScanners;
   }
@@ -383,18 +458,37 @@ public class VisitorsBridge {
   }
 
   private class IssuableSubscriptionVisitorsRunner implements JavaFileScanner, EndOfAnalysis {
-    private EnumMap<Tree.Kind, List<SubscriptionVisitor>> checks;
-    private List<SubscriptionVisitor> subscriptionVisitors;
+    private static final SubscriptionVisitor[] NO_VISITORS = new SubscriptionVisitor[0];
+    private static final int VISIT_NODE = 0;
+    private static final int LEAVE_NODE = 1;
+    private static final int VISIT_TOKEN = 2;
+    private static final int VISIT_TRIVIA = 3;
+
+    /**
+     * Subscribed visitors, indexed by the ordinal of the visited {@link Tree.Kind}, so that dispatching a node neither looks up a map
+     * nor allocates anything.
+     */
+    private final SubscriptionVisitor[][] visitorsByKind;
+    private final List<SubscriptionVisitor> subscriptionVisitors;
+    private final int[] visitedNodesByKind = new int[Tree.Kind.values().length];
+    private boolean timeVisitors;
+    @Nullable
+    private RuleCostReport sampledCostReport;
 
     IssuableSubscriptionVisitorsRunner() {
-      checks = new EnumMap<>(Tree.Kind.class);
+      visitorsByKind = new SubscriptionVisitor[Tree.Kind.values().length][];
+      Arrays.fill(visitorsByKind, NO_VISITORS);
       this.subscriptionVisitors = new ArrayList<>();
     }
 
     private void add(SubscriptionVisitor subscriptionVisitor) {
       this.subscriptionVisitors.add(subscriptionVisitor);
-      subscriptionVisitor.nodesToVisit()
-        .forEach(k -> checks.computeIfAbsent(k, key -> new ArrayList<>()).add(subscriptionVisitor));
+      for (Tree.Kind kind : subscriptionVisitor.nodesToVisit()) {
+        SubscriptionVisitor[] subscribed = visitorsByKind[kind.ordinal()];
+        SubscriptionVisitor[] extended = Arrays.copyOf(subscribed, subscribed.length + 1);
+        extended[subscribed.length] = subscriptionVisitor;
+        visitorsByKind[kind.ordinal()] = extended;
+      }
     }
 
     @Override
@@ -423,6 +517,9 @@ public class VisitorsBridge {
     @Override
     public void scanFile(JavaFileScannerContext javaFileScannerContext) {
       PerformanceMeasure.Duration issuableSubscriptionVisitorsDuration = PerformanceMeasure.start("IssuableSubscriptionVisitors");
+      timeVisitors = sonarComponents != null && sonarComponents.sampleVisitorTiming();
+      sampledCostReport = timeVisitors ? ruleCostReport : null;
+      Arrays.fill(visitedNodesByKind, 0);
       try {
         forEach(subscriptionVisitors, s -> s.setContext(javaFileScannerContext));
         visit(javaFileScannerContext.getTree());
@@ -430,10 +527,25 @@ public class VisitorsBridge {
       } catch (CheckFailureException e) {
         interruptIfFailFast(e);
       } finally {
+        recordVisitedNodes();
         issuableSubscriptionVisitorsDuration.stop();
       }
     }
 
+    private void recordVisitedNodes() {
+      RuleCostReport costReport = ruleCostReport;
+      if (costReport == null) {
+        return;
+      }
+      for (SubscriptionVisitor visitor : subscriptionVisitors) {
+        long visitedNodes = 0;
+        for (Tree.Kind kind : visitor.nodesToVisit()) {
+          visitedNodes += visitedNodesByKind[kind.ordinal()];
+        }
+        costReport.addVisitedNodes(visitor, visitedNodes);
+      }
+    }
+
     @Override
     public void endOfAnalysis(ModuleScannerContext cachedContext) {
       subscriptionVisitors.stream()
@@ -455,31 +567,70 @@ public class VisitorsBridge {
 
     private void visit(Tree tree) throws CheckFailureException {
       Kind kind = tree.kind();
-      List<SubscriptionVisitor> subscribed = checks.getOrDefault(kind, Collections.emptyList());
-      Consumer<SubscriptionVisitor> callback;
-      boolean isToken = (kind == Tree.Kind.TOKEN);
-      if (isToken) {
-        callback = s -> s.visitToken((SyntaxToken) tree);
-      } else {
-        callback = s -> s.visitNode(tree);
-      }
-      forEach(subscribed, callback);
-      if (isToken) {
-        forEach(checks.getOrDefault(Tree.Kind.TRIVIA, Collections.emptyList()), s -> ((SyntaxToken) tree).trivias().forEach(s::visitTrivia));
+      SubscriptionVisitor[] subscribed = visitorsByKind[kind.ordinal()];
+      visitedNodesByKind[kind.ordinal()]++;
+      if (kind == Tree.Kind.TOKEN) {
+        dispatch(subscribed, VISIT_TOKEN, tree);
+        SubscriptionVisitor[] triviaVisitors = visitorsByKind[Tree.Kind.TRIVIA.ordinal()];
+        if (triviaVisitors.length > 0) {
+          // trivia are not visited as nodes, they are counted here for the visitors subscribed to them
+          visitedNodesByKind[Tree.Kind.TRIVIA.ordinal()] += ((SyntaxToken) tree).trivias().size();
+          dispatch(triviaVisitors, VISIT_TRIVIA, tree);
+        }
       } else {
+        dispatch(subscribed, VISIT_NODE, tree);
         visitChildren(tree);
+        dispatch(subscribed, LEAVE_NODE, tree);
       }
-      if (!isToken) {
-        forEach(subscribed, s -> s.leaveNode(tree));
+    }
+
+    private void dispatch(SubscriptionVisitor[] visitors, int event, Tree tree) throws CheckFailureException {
+      for (SubscriptionVisitor visitor : visitors) {
+        PerformanceMeasure.Duration visitorDuration = timeVisitors ? PerformanceMeasure.start(visitor) : null;
+        long cpuTime = sampledCostReport != null ? RuleCostReport.currentThreadCpuTime() : 0L;
+        long allocatedBytes = sampledCostReport != null ? RuleCostReport.currentThreadAllocatedBytes() : 0L;
+        try {
+          switch (event) {
+            case VISIT_NODE -> visitor.visitNode(tree);
+            case LEAVE_NODE -> visitor.leaveNode(tree);
+            case VISIT_TOKEN -> visitor.visitToken((SyntaxToken) tree);
+            default -> {
+              for (SyntaxTrivia trivia : ((SyntaxToken) tree).trivias()) {
+                visitor.visitTrivia(trivia);
+              }
+            }
+          }
+        } catch (RuntimeException e) {
+          throw checkFailure(e, visitor);
+        } finally {
+          stopMeasures(visitor, visitorDuration, cpuTime, allocatedBytes);
+        }
       }
     }
 
-    private final void forEach(Collection<SubscriptionVisitor> visitors, Consumer<SubscriptionVisitor> callback) throws CheckFailureException {
+    private void forEach(Collection<SubscriptionVisitor> visitors, Consumer<SubscriptionVisitor> callback) throws CheckFailureException {
       for (SubscriptionVisitor visitor : visitors) {
-        PerformanceMeasure.Duration visitorDuration = PerformanceMeasure.start(visitor);
-        runScanner(() -> callback.accept(visitor), visitor);
+        PerformanceMeasure.Duration visitorDuration = timeVisitors ? PerformanceMeasure.start(visitor) : null;
+        long cpuTime = sampledCostReport != null ? RuleCostReport.currentThreadCpuTime() : 0L;
+        long allocatedBytes = sampledCostReport != null ? RuleCostReport.currentThreadAllocatedBytes() : 0L;
+        try {
+          runScanner(() -> callback.accept(visitor), visitor);
+        } finally {
+          stopMeasures(visitor, visitorDuration, cpuTime, allocatedBytes);
+        }
+      }
+    }
+
+    private void stopMeasures(SubscriptionVisitor visitor, @Nullable PerformanceMeasure.Duration visitorDuration, long cpuTime, long allocatedBytes) {
+      if (visitorDuration != null) {
         visitorDuration.stop();
       }
+      if (sampledCostReport != null) {
+        sampledCostReport.addSampledCost(visitor,
+          RuleCostReport.currentThreadCpuTime() - cpuTime,
+          RuleCostReport.currentThreadAllocatedBytes() - allocatedBytes);
+      }
     }
   }
+
 }
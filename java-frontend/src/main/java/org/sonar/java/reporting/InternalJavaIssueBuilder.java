@@ -32,6 +32,7 @@ import org.sonar.api.batch.sensor.issue.fix.NewInputFileEdit;
 import org.sonar.api.batch.sensor.issue.fix.NewQuickFix;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.java.Preconditions;
+import org.sonar.java.RuleCostReport;
 import org.sonar.java.SonarComponents;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
@@ -230,6 +231,10 @@ public class InternalJavaIssueBuilder implements JavaIssueBuilderExtended {
     handleQuickFixes(ruleKeyVal, newIssue);
 
     newIssue.save();
+    RuleCostReport costReport = sonarComponents.ruleCostReport();
+    if (costReport != null) {
+      costReport.addIssue(ruleKeyVal.toString());
+    }
     reported = true;
   }
 
@@ -16,8 +16,18 @@
  */
 package org.eclipse.jdt.core.dom;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jdt.core.JavaCore;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 class ASTUtilsTest {
@@ -26,4 +36,35 @@ class ASTUtilsTest {
   void type_resolution_should_recover() {
     assertNull(ASTUtils.resolveType(/* causes NPE */null, "Unknown"));
   }
+
+  @Test
+  void compiler_bindings_are_shared_by_the_asts_of_a_same_environment(@TempDir Path dir) throws IOException {
+    Path a = Files.writeString(dir.resolve("A.java"), "package p; class A {}");
+    Path b = Files.writeString(dir.resolve("B.java"), "package p; class B {}");
+    ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
+    Map<String, String> options = JavaCore.getOptions();
+    JavaCore.setComplianceOptions(JavaCore.VERSION_17, options);
+    parser.setCompilerOptions(options);
+    parser.setEnvironment(new String[0], new String[0], new String[0], true);
+    parser.setResolveBindings(true);
+
+    LookupEnvironmentCache cache = new LookupEnvironmentCache();
+    List<ITypeBinding> objectTypes = new ArrayList<>();
+    List<ITypeBinding> sourceTypes = new ArrayList<>();
+    parser.createASTs(new String[] {a.toString(), b.toString()}, null, new String[0], new FileASTRequestor() {
+      @Override
+      public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+        objectTypes.add(ASTUtils.resolveType(ast.getAST(), "java.lang.Object", cache));
+        sourceTypes.add(ASTUtils.resolveType(ast.getAST(), "p.B", cache));
+        assertNull(ASTUtils.resolveType(ast.getAST(), "p.Unknown", cache));
+        assertEquals(0, ASTUtils.resolvePackageAnnotations(ast.getAST(), "java.lang", cache).length);
+      }
+    }, null);
+
+    assertEquals(2, objectTypes.size());
+    assertNotNull(objectTypes.get(0));
+    assertNotNull(sourceTypes.get(0));
+    assertEquals(objectTypes.get(0).getKey(), objectTypes.get(1).getKey());
+    assertEquals(sourceTypes.get(0).getKey(), sourceTypes.get(1).getKey());
+  }
 }
@@ -0,0 +1,75 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.eclipse.jdt.core.dom;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.jdt.internal.compiler.lookup.AnnotationBinding;
+import org.eclipse.jdt.internal.compiler.lookup.Binding;
+import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class LookupEnvironmentCacheTest {
+
+  private final List<String> lookedUpNames = new ArrayList<>();
+
+  @Test
+  void types_are_looked_up_once_including_missing_ones() {
+    LookupEnvironmentCache cache = new LookupEnvironmentCache();
+    ReferenceBinding binding = mock(ReferenceBinding.class);
+
+    assertThat(cache.type("p.A", name -> lookUp(name, binding))).isSameAs(binding);
+    assertThat(cache.type("p.A", name -> lookUp(name, null))).isSameAs(binding);
+    assertThat(cache.type("p.Missing", name -> lookUp(name, null))).isNull();
+    assertThat(cache.type("p.Missing", name -> lookUp(name, binding))).isNull();
+
+    assertThat(lookedUpNames).containsExactly("p.A", "p.Missing");
+  }
+
+  @Test
+  void package_annotations_are_looked_up_once() {
+    LookupEnvironmentCache cache = new LookupEnvironmentCache();
+    AnnotationBinding[] annotations = {mock(AnnotationBinding.class)};
+
+    assertThat(cache.packageAnnotations("p", name -> lookUp(name, annotations))).isSameAs(annotations);
+    assertThat(cache.packageAnnotations("p", name -> lookUp(name, Binding.NO_ANNOTATIONS))).isSameAs(annotations);
+    assertThat(cache.packageAnnotations("q", name -> lookUp(name, Binding.NO_ANNOTATIONS))).isEmpty();
+
+    assertThat(lookedUpNames).containsExactly("p", "q");
+  }
+
+  @Test
+  void failed_lookups_are_not_cached() {
+    LookupEnvironmentCache cache = new LookupEnvironmentCache();
+    ReferenceBinding binding = mock(ReferenceBinding.class);
+
+    assertThatThrownBy(() -> cache.type("p.A", name -> {
+      throw new IllegalStateException("ECJ failure");
+    })).isInstanceOf(IllegalStateException.class);
+    assertThat(cache.type("p.A", name -> lookUp(name, binding))).isSameAs(binding);
+  }
+
+  private <T> T lookUp(String name, T result) {
+    lookedUpNames.add(name);
+    return result;
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import com.sun.management.GcInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.event.Level;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdaptiveBatchSizeTest {
+
+  @RegisterExtension
+  public LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  private static final long FAST_BATCH = 1_000_000L;
+
+  @Test
+  void batch_size_grows_when_heap_occupancy_is_low_and_batches_are_fast() {
+    AdaptiveBatchSize adaptiveBatchSize = new AdaptiveBatchSize(100_000L, () -> 0.1);
+    assertThat(adaptiveBatchSize.batchSizeInBytes()).isEqualTo(100_000L);
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(150_000L);
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(225_000L);
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(337_500L);
+    // capped to 4 times the initial size
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(400_000L);
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(400_000L);
+    assertThat(logTester.logs(Level.DEBUG))
+      .contains("Heap occupancy after GC: 10%, last batch took 1 ms. Next batch size: 150 KB (Increase).");
+  }
+
+  @Test
+  void batch_size_shrinks_when_heap_occupancy_is_high() {
+    AdaptiveBatchSize adaptiveBatchSize = new AdaptiveBatchSize(100_000L, () -> 0.9);
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(50_000L);
+    // bounded to a quarter of the initial size
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(25_000L);
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(25_000L);
+  }
+
+  @Test
+  void batch_size_is_kept_when_heap_occupancy_is_moderate_or_batches_are_slow() {
+    AtomicReference<Double> heapOccupancy = new AtomicReference<>(0.5);
+    AdaptiveBatchSize adaptiveBatchSize = new AdaptiveBatchSize(100_000L, heapOccupancy::get);
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH)).isEqualTo(100_000L);
+
+    heapOccupancy.set(0.1);
+    assertThat(adaptiveBatchSize.nextBatchSizeInBytes(AdaptiveBatchSize.MAX_BATCH_DURATION_NANOS)).isEqualTo(100_000L);
+    assertThat(logTester.logs(Level.DEBUG)).allMatch(log -> log.endsWith("(Keep)."));
+  }
+
+  @Test
+  void summary_counts_the_decisions() {
+    AtomicReference<Double> heapOccupancy = new AtomicReference<>(0.1);
+    AdaptiveBatchSize adaptiveBatchSize = new AdaptiveBatchSize(100_000L, heapOccupancy::get);
+    adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH);
+    adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH);
+    heapOccupancy.set(0.9);
+    adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH);
+    heapOccupancy.set(0.5);
+    adaptiveBatchSize.nextBatchSizeInBytes(FAST_BATCH);
+    adaptiveBatchSize.logSummary();
+    assertThat(logTester.logs(Level.INFO))
+      .containsExactly("Adaptive batch size: 2 increase(s), 1 decrease(s), 1 unchanged. Last batch size: 112 KB.");
+  }
+
+  @Test
+  void heap_occupancy_is_a_ratio() {
+    assertThat(AdaptiveBatchSize.heapOccupancyAfterLastGc()).isBetween(0.0, 1.0);
+  }
+
+  @Test
+  void heap_occupancy_is_read_from_the_most_recent_gc_and_not_from_stale_collection_usages() {
+    // as with G1, the collection usage of the old generation is only updated by mixed or full collections
+    MemoryPoolMXBean oldGen = heapPool("G1 Old Gen", 0L);
+    MemoryPoolMXBean eden = heapPool("G1 Eden Space", 0L);
+    MemoryPoolMXBean metaspace = mock(MemoryPoolMXBean.class);
+    when(metaspace.getType()).thenReturn(MemoryType.NON_HEAP);
+    when(metaspace.getName()).thenReturn("Metaspace");
+    List<MemoryPoolMXBean> pools = List.of(oldGen, eden, metaspace);
+
+    GarbageCollectorMXBean oldCollector = collector(gcInfo(1_000L, Map.of("G1 Old Gen", usage(100L), "G1 Eden Space", usage(0L))));
+    GarbageCollectorMXBean youngCollector = collector(gcInfo(2_000L,
+      Map.of("G1 Old Gen", usage(800L), "G1 Eden Space", usage(50L), "Metaspace", usage(500L))));
+    MemoryUsage heapUsage = new MemoryUsage(0L, 950L, 1_000L, 1_000L);
+
+    assertThat(AdaptiveBatchSize.heapOccupancyAfterLastGc(pools, List.of(oldCollector, youngCollector), heapUsage)).isEqualTo(0.85);
+  }
+
+  @Test
+  void heap_occupancy_falls_back_on_the_current_heap_usage_without_gc_information() {
+    GarbageCollectorMXBean collectorWithoutGc = collector(null);
+    GarbageCollectorMXBean otherCollector = mock(GarbageCollectorMXBean.class);
+    MemoryUsage heapUsage = new MemoryUsage(0L, 300L, 500L, -1L);
+
+    assertThat(AdaptiveBatchSize.heapOccupancyAfterLastGc(List.of(), List.of(collectorWithoutGc, otherCollector), heapUsage)).isEqualTo(0.6);
+    assertThat(AdaptiveBatchSize.heapOccupancyAfterLastGc(List.of(), List.of(), new MemoryUsage(0L, 0L, 0L, -1L))).isZero();
+  }
+
+  private static MemoryPoolMXBean heapPool(String name, long collectionUsage) {
+    MemoryPoolMXBean pool = mock(MemoryPoolMXBean.class);
+    when(pool.getType()).thenReturn(MemoryType.HEAP);
+    when(pool.getName()).thenReturn(name);
+    when(pool.getCollectionUsage()).thenReturn(usage(collectionUsage));
+    return pool;
+  }
+
+  private static GarbageCollectorMXBean collector(@Nullable GcInfo lastGcInfo) {
+    com.sun.management.GarbageCollectorMXBean collector = mock(com.sun.management.GarbageCollectorMXBean.class);
+    when(collector.getLastGcInfo()).thenReturn(lastGcInfo);
+    return collector;
+  }
+
+  private static GcInfo gcInfo(long endTime, Map<String, MemoryUsage> usageAfterGc) {
+    GcInfo gcInfo = mock(GcInfo.class);
+    when(gcInfo.getEndTime()).thenReturn(endTime);
+    when(gcInfo.getMemoryUsageAfterGc()).thenReturn(usageAfterGc);
+    return gcInfo;
+  }
+
+  private static MemoryUsage usage(long used) {
+    return new MemoryUsage(0L, used, used, -1L);
+  }
+}
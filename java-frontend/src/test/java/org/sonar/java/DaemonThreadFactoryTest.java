@@ -0,0 +1,37 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DaemonThreadFactoryTest {
+
+  @Test
+  void threads_are_numbered_daemon_threads() {
+    DaemonThreadFactory threadFactory = new DaemonThreadFactory("sonar-java-test");
+    Runnable runnable = () -> {
+    };
+    Thread first = threadFactory.newThread(runnable);
+    Thread second = threadFactory.newThread(runnable);
+    assertThat(first.getName()).isEqualTo("sonar-java-test-1");
+    assertThat(second.getName()).isEqualTo("sonar-java-test-2");
+    assertThat(first.isDaemon()).isTrue();
+    assertThat(second.isDaemon()).isTrue();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DependencyClusteredOrderTest {
+
+  @Test
+  void read_header_collects_package_and_imported_packages() {
+    DependencyClusteredOrder.FileHeader header = DependencyClusteredOrder.readHeader("""
+      /* license */
+      package org.acme.app;
+
+      import java.util.List;
+      import org.acme.util.*;
+      import static org.acme.math.Operations.add;
+      import static org.acme.text.Format.*;
+
+      public class App {
+        // not part of the header
+        String s = "import org.acme.ignored.Ignored;";
+      }
+      """);
+    assertThat(header.packageName()).isEqualTo("org.acme.app");
+    assertThat(header.importedNames()).containsExactlyInAnyOrder("java.util", "org.acme.util", "org.acme.math", "org.acme.text");
+  }
+
+  @Test
+  void read_header_of_files_without_package_or_imports() {
+    DependencyClusteredOrder.FileHeader header = DependencyClusteredOrder.readHeader("record R(int i) {}");
+    assertThat(header.packageName()).isEmpty();
+    assertThat(header.importedNames()).isEmpty();
+
+    header = DependencyClusteredOrder.readHeader("package a; import b.C; \"unterminated");
+    assertThat(header.packageName()).isEqualTo("a");
+    assertThat(header.importedNames()).containsExactly("b");
+  }
+
+  @Test
+  void read_header_of_unreadable_file() throws IOException {
+    InputFile inputFile = mock(InputFile.class);
+    when(inputFile.inputStream()).thenThrow(new IOException("Boom!"));
+    DependencyClusteredOrder.FileHeader header = DependencyClusteredOrder.readHeader(inputFile);
+    assertThat(header.packageName()).isEmpty();
+    assertThat(header.importedNames()).isEmpty();
+  }
+
+  @Test
+  void read_header_of_nested_type_imports() {
+    DependencyClusteredOrder.FileHeader header = DependencyClusteredOrder.readHeader("""
+      package a;
+      import b.Outer.Inner;
+      import b.Outer.*;
+      import static c.Outer.Inner.CONSTANT;
+      class A {}
+      """);
+    assertThat(header.importedNames()).containsExactlyInAnyOrder("b.Outer", "c.Outer");
+  }
+
+  @Test
+  void read_header_of_file_larger_than_the_header() {
+    String padding = "/*" + "*".repeat(DependencyClusteredOrder.MAX_HEADER_SIZE / 2) + "*/";
+    InputFile inputFile = inputFile("a/A.java", "package a;" + padding + "import b.B; class A { String s = \"" + padding + "\"; }");
+    DependencyClusteredOrder.FileHeader header = DependencyClusteredOrder.readHeader(inputFile);
+    assertThat(header.packageName()).isEqualTo("a");
+    assertThat(header.importedNames()).containsExactly("b");
+
+    inputFile = inputFile("a/B.java", "package a;" + padding + "import b.B;");
+    header = DependencyClusteredOrder.readHeader(inputFile);
+    assertThat(header.importedNames()).containsExactly("b");
+  }
+
+  @Test
+  void imports_beyond_the_maximum_header_size_are_ignored() {
+    String padding = "/*" + "*".repeat(DependencyClusteredOrder.MAX_HEADER_SIZE) + "*/";
+    InputFile inputFile = inputFile("a/A.java", "package a; import b.B;" + padding + "import c.C; class A {}");
+    DependencyClusteredOrder.FileHeader header = DependencyClusteredOrder.readHeader(inputFile);
+    assertThat(header.packageName()).isEqualTo("a");
+    assertThat(header.importedNames()).containsExactly("b");
+  }
+
+  @Test
+  void nested_type_imports_link_to_the_package_of_their_top_level_type() {
+    InputFile a = inputFile("a/A.java", "package a; import c.Outer.Inner; class A {}");
+    InputFile b = inputFile("b/B.java", "package b; class B {}");
+    InputFile c = inputFile("c/Outer.java", "package c; class Outer { class Inner {} }");
+
+    assertThat(DependencyClusteredOrder.order(List.of(a, b, c))).containsExactly(a, c, b);
+  }
+
+  @Test
+  void files_of_linked_packages_are_adjacent() {
+    InputFile a1 = inputFile("a/A1.java", "package a; import c.C1; class A1 {}");
+    InputFile b1 = inputFile("b/B1.java", "package b; class B1 {}");
+    InputFile c1 = inputFile("c/C1.java", "package c; class C1 {}");
+    InputFile a2 = inputFile("a/A2.java", "package a; class A2 {}");
+    InputFile d1 = inputFile("d/D1.java", "package d; import b.B1; import java.util.List; class D1 {}");
+    InputFile c2 = inputFile("c/C2.java", "package c; import a.A2; class C2 {}");
+
+    List<InputFile> ordered = DependencyClusteredOrder.order(List.of(a1, b1, c1, a2, d1, c2));
+
+    assertThat(ordered).containsExactly(a1, a2, c1, c2, b1, d1);
+  }
+
+  @Test
+  void most_linked_package_is_visited_first() {
+    InputFile a = inputFile("a/A.java", "package a; import b.B; import c.C; class A {}");
+    InputFile b = inputFile("b/B.java", "package b; class B {}");
+    InputFile c1 = inputFile("c/C1.java", "package c; import a.A; class C1 {}");
+    InputFile c2 = inputFile("c/C2.java", "package c; import a.A; class C2 {}");
+
+    assertThat(DependencyClusteredOrder.order(List.of(b, c1, a, c2))).containsExactly(a, c1, c2, b);
+  }
+
+  private static InputFile inputFile(String path, String contents) {
+    return new TestInputFileBuilder("", path)
+      .setContents(contents)
+      .setCharset(UTF_8)
+      .setLanguage("java")
+      .build();
+  }
+}
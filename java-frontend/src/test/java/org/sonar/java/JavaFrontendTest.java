@@ -66,6 +66,7 @@ import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.plugins.java.api.JavaVersion;
 import org.sonar.plugins.java.api.ModuleScannerContext;
 import org.sonar.plugins.java.api.internal.EndOfAnalysis;
+import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -398,6 +399,9 @@ class JavaFrontendTest {
     assertThat(frontend.isFileByFileEnabled()).isFalse();
     assertThat(frontend.analysisCancelled()).isFalse();
     assertThat(frontend.getBatchModeSizeInKB()).isEqualTo(-1L);
+    assertThat(frontend.getAnalysisThreads()).isEqualTo(1);
+    assertThat(frontend.isAdaptiveBatchSizeEnabled()).isFalse();
+    assertThat(frontend.isBatchClusteringEnabled()).isFalse();
   }
 
   @Test
@@ -683,6 +687,72 @@ class JavaFrontendTest {
       .contains("Using ECJ batch to parse 2 Main java source files with batch size 0 KB.");
   }
 
+  @Test
+  void test_scan_as_batch_with_several_analysis_threads() throws IOException {
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0)
+      .setProperty(SonarComponents.SONAR_ANALYSIS_THREADS_KEY, 2);
+    scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B extends A {}", "class C extends B {}");
+    String allLogs = String.join("\n", logTester.logs());
+    assertThat(allLogs)
+      .contains("Using ECJ batch to parse 3 Main java source files with batch size 0 KB, split into batches of 0 KB parsed by 2 threads.");
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+    assertThat(mainCodeIssueScannerAndFilter.lastScannedTree.types()).hasSize(1);
+  }
+
+  @Test
+  void test_scan_as_batch_with_several_analysis_threads_splits_the_batch_size() throws IOException {
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 10)
+      .setProperty(SonarComponents.SONAR_ANALYSIS_THREADS_KEY, 2);
+    scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B extends A {}", "class C extends B {}");
+    assertThat(logTester.logs())
+      .contains("Using ECJ batch to parse 3 Main java source files with batch size 10 KB, split into batches of 5 KB parsed by 2 threads.")
+      .noneMatch(log -> log.contains("Unresolved imports/types"));
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+    ClassTree lastScannedClass = (ClassTree) mainCodeIssueScannerAndFilter.lastScannedTree.types().get(0);
+    assertThat(lastScannedClass.symbol().superClass().fullyQualifiedName()).isEqualTo("B");
+  }
+
+  @Test
+  void test_scan_as_batch_clustered_by_dependencies() throws IOException {
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 1000)
+      .setProperty(SonarComponents.SONAR_CLUSTER_BATCHES_KEY, true);
+    scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B extends A {}");
+    assertThat(logTester.logs())
+      .contains("Files will be grouped into batches according to their packages and imports.")
+      .noneMatch(log -> log.contains("Unresolved imports/types"));
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(2);
+  }
+
+  @Test
+  void test_scan_as_batch_with_adaptive_batch_size() throws IOException {
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0)
+      .setProperty(SonarComponents.SONAR_ADAPTIVE_BATCH_SIZE_KEY, true);
+    scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B {}", "class C {}");
+    assertThat(logTester.logs())
+      .contains("The size of the ECJ batches will be adjusted to the available memory.")
+      .anyMatch(log -> log.matches("Heap occupancy after GC: \\d+%, last batch took \\d+ ms\\. Next batch size: 0 KB \\(\\w+\\)\\."))
+      .anyMatch(log -> log.matches("Adaptive batch size: \\d increase\\(s\\), \\d decrease\\(s\\), \\d unchanged\\. Last batch size: 0 KB\\."));
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+  }
+
+  @Test
+  void analysis_exception_should_interrupt_analysis_with_several_analysis_threads() {
+    MapSettings settings = new MapSettings()
+      .setProperty(SonarComponents.SONAR_BATCH_SIZE_KEY, 0)
+      .setProperty(SonarComponents.SONAR_ANALYSIS_THREADS_KEY, 2);
+    mainCodeIssueScannerAndFilter.exceptionDuringScan = new IllegalRuleParameterException("Test AnalysisException", new NullPointerException());
+    assertThatThrownBy(() -> scan(settings, SONARQUBE_RUNTIME, "class A {}", "class B {}", "class C {}"))
+      .isInstanceOf(AnalysisException.class)
+      .hasMessage("Bad configuration of rule parameter");
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(1);
+  }
+
   @Test
   void batch_generator_returns_an_empty_list_when_no_input_files() {
     List<InputFile> emptyList = Collections.emptyList();
@@ -777,6 +847,24 @@ class JavaFrontendTest {
     assertThat(generator.next()).isEmpty();
   }
 
+  @Test
+  void batch_generator_uses_updated_batch_size_for_next_batches() throws IOException {
+    if (sensorContext == null) {
+      File baseDir = temp.getRoot().getAbsoluteFile();
+      sensorContext = SensorContextTester.create(baseDir);
+      sensorContext.setSettings(new MapSettings());
+    }
+    InputFile fileA = addFile("class A {}", sensorContext);
+    InputFile fileB = addFile("class B {}", sensorContext);
+    InputFile fileC = addFile("class C {}", sensorContext);
+    JavaFrontend.BatchGenerator generator = new JavaFrontend.BatchGenerator(Arrays.asList(fileA, fileB, fileC).iterator(), 0);
+    assertThat(generator.next()).containsExactly(fileA);
+    generator.setBatchSizeInBytes(1_000L);
+    assertThat(generator.batchSizeInBytes()).isEqualTo(1_000L);
+    assertThat(generator.next()).containsExactly(fileB, fileC);
+    assertThat(generator.hasNext()).isFalse();
+  }
+
   @Test
   void sonar_java_ignoreUnnamedModuleForSplitPackage_is_logged_at_debug_level_when_enabled() throws IOException {
     MapSettings settings = new MapSettings();
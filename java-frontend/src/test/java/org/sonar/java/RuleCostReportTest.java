@@ -0,0 +1,130 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.java.testing.ThreadLocalLogTester;
+import org.sonar.plugins.java.api.JavaCheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleCostReportTest {
+
+  @RegisterExtension
+  ThreadLocalLogTester logTester = new ThreadLocalLogTester().setLevel(Level.DEBUG);
+
+  private static final JavaCheck CHECK = new JavaCheck() {
+  };
+  private static final JavaCheck OTHER_CHECK = new JavaCheck() {
+  };
+
+  private final RuleCostReport report = new RuleCostReport(check -> check == CHECK ? "java:S1" : "java:S2");
+
+  @Test
+  void costs_are_aggregated_by_rule_key() {
+    report.addCost(CHECK, 100, 1_000);
+    report.addCost(CHECK, 50, 500);
+    report.addSampledCost(CHECK, 10, 20);
+    report.addVisitedNodes(CHECK, 42);
+    report.addIssue("java:S1");
+    report.addIssue("java:S1");
+    report.addSkippedFile(OTHER_CHECK);
+    report.addIssue("java:S3");
+
+    Map<String, long[]> values = report.values(3.0);
+    assertThat(values).containsOnlyKeys("java:S1", "java:S2", "java:S3");
+    assertThat(values.get("java:S1")).containsExactly(180, 1_560, 42, 2, 0);
+    assertThat(values.get("java:S2")).containsExactly(0, 0, 0, 0, 1);
+    assertThat(values.get("java:S3")).containsExactly(0, 0, 0, 1, 0);
+  }
+
+  @Test
+  void report_is_written_as_json_and_prometheus_metrics(@TempDir Path workDir) throws IOException {
+    report.addCost(CHECK, 1_500_000_000L, 1_000);
+    report.addVisitedNodes(CHECK, 42);
+    report.addIssue("java:S1");
+    report.addSkippedFile(OTHER_CHECK);
+
+    report.write(workDir, 1.0);
+
+    assertThat(Files.readString(workDir.resolve(RuleCostReport.JSON_FILE_NAME))).isEqualTo("""
+      {
+        "rules": [
+          {"rule": "java:S1", "cpuNanos": 1500000000, "allocatedBytes": 1000, "visitedNodes": 42, "reportedIssues": 1, "skippedFiles": 0},
+          {"rule": "java:S2", "cpuNanos": 0, "allocatedBytes": 0, "visitedNodes": 0, "reportedIssues": 0, "skippedFiles": 1}
+        ]
+      }
+      """);
+    assertThat(Files.readString(workDir.resolve(RuleCostReport.PROMETHEUS_FILE_NAME))).isEqualTo("""
+      # HELP sonar_java_rule_cpu_seconds_total CPU time spent in the rule.
+      # TYPE sonar_java_rule_cpu_seconds_total counter
+      sonar_java_rule_cpu_seconds_total{rule="java:S1"} 1.500000000
+      sonar_java_rule_cpu_seconds_total{rule="java:S2"} 0.000000000
+      # HELP sonar_java_rule_allocated_bytes_total Bytes allocated by the rule.
+      # TYPE sonar_java_rule_allocated_bytes_total counter
+      sonar_java_rule_allocated_bytes_total{rule="java:S1"} 1000
+      sonar_java_rule_allocated_bytes_total{rule="java:S2"} 0
+      # HELP sonar_java_rule_visited_nodes_total Tree nodes dispatched to the rule.
+      # TYPE sonar_java_rule_visited_nodes_total counter
+      sonar_java_rule_visited_nodes_total{rule="java:S1"} 42
+      sonar_java_rule_visited_nodes_total{rule="java:S2"} 0
+      # HELP sonar_java_rule_reported_issues_total Issues reported by the rule, before the issue filters are applied.
+      # TYPE sonar_java_rule_reported_issues_total counter
+      sonar_java_rule_reported_issues_total{rule="java:S1"} 1
+      sonar_java_rule_reported_issues_total{rule="java:S2"} 0
+      # HELP sonar_java_rule_skipped_files_total Files on which the rule was skipped thanks to the cache.
+      # TYPE sonar_java_rule_skipped_files_total counter
+      sonar_java_rule_skipped_files_total{rule="java:S1"} 0
+      sonar_java_rule_skipped_files_total{rule="java:S2"} 1
+      """);
+    assertThat(logTester.logs(Level.DEBUG)).contains("Rule cost report written for 2 rules in " + workDir);
+  }
+
+  @Test
+  void rule_keys_are_escaped() {
+    Map<String, long[]> values = Map.of("a\"b\\c", new long[] {0, 0, 0, 0, 0});
+    assertThat(RuleCostReport.toJson(values)).contains("{\"rule\": \"a\\\"b\\\\c\",");
+    assertThat(RuleCostReport.toPrometheus(values)).contains("sonar_java_rule_reported_issues_total{rule=\"a\\\"b\\\\c\"} 0");
+  }
+
+  @Test
+  void failure_to_write_the_report_is_logged(@TempDir Path workDir) {
+    report.write(workDir.resolve("missing"), 1.0);
+    assertThat(logTester.logs(Level.WARN)).hasSize(1);
+    assertThat(logTester.logs(Level.WARN).get(0)).startsWith("Unable to write the rule cost report: ");
+  }
+
+  @Test
+  void current_thread_usage_is_measured() {
+    long cpuTime = RuleCostReport.currentThreadCpuTime();
+    long allocatedBytes = RuleCostReport.currentThreadAllocatedBytes();
+    byte[][] garbage = new byte[100][];
+    for (int i = 0; i < garbage.length; i++) {
+      garbage[i] = new byte[1_000];
+    }
+    assertThat(garbage[99]).hasSize(1_000);
+    assertThat(RuleCostReport.currentThreadCpuTime()).isGreaterThanOrEqualTo(cpuTime);
+    assertThat(RuleCostReport.currentThreadAllocatedBytes()).isGreaterThanOrEqualTo(allocatedBytes);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.api.testfixtures.log.LogTesterJUnit5;
+import org.sonarsource.performance.measure.DurationMeasure;
+import org.sonarsource.performance.measure.DurationMeasureFiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SampledPerformanceMeasureTest {
+
+  @RegisterExtension
+  public LogTesterJUnit5 logTester = new LogTesterJUnit5().setLevel(Level.DEBUG);
+
+  @Test
+  void only_the_measures_below_the_subscription_visitors_are_extrapolated() {
+    DurationMeasure extrapolated = SampledPerformanceMeasure.extrapolate(sensorMeasure(), 2.5, false);
+
+    assertThat(extrapolated.calls()).isEqualTo(1);
+    assertThat(extrapolated.durationNanos()).isEqualTo(1_000);
+    DurationMeasure visitors = extrapolated.get("Scanners").get("IssuableSubscriptionVisitors");
+    assertThat(visitors.calls()).isEqualTo(10);
+    assertThat(visitors.durationNanos()).isEqualTo(500);
+    DurationMeasure check = visitors.get("ACheck");
+    assertThat(check.calls()).isEqualTo(250);
+    assertThat(check.durationNanos()).isEqualTo(75);
+    assertThat(check.get("RegexParser").calls()).isEqualTo(5);
+    assertThat(check.get("RegexParser").durationNanos()).isEqualTo(25);
+    assertThat(extrapolated.get("Scanners").get("OtherCheck").durationNanos()).isEqualTo(200);
+  }
+
+  @Test
+  void measures_of_the_analysis_are_extrapolated_and_merged_into_the_performance_measure_file(@TempDir Path workDir) throws IOException {
+    Path performanceMeasureFile = workDir.resolve("sonar.java.performance.measure.json");
+    Path analysisMeasureFile = workDir.resolve("analysis.json");
+
+    DurationMeasureFiles.writeJson(analysisMeasureFile, sensorMeasure());
+    SampledPerformanceMeasure.extrapolateAndMerge(analysisMeasureFile, performanceMeasureFile, 1.0);
+    assertThat(checkMeasure(performanceMeasureFile).calls()).isEqualTo(100);
+    assertThat(analysisMeasureFile).doesNotExist();
+
+    DurationMeasureFiles.writeJson(analysisMeasureFile, sensorMeasure());
+    SampledPerformanceMeasure.extrapolateAndMerge(analysisMeasureFile, performanceMeasureFile, 3.0);
+    // measures of the previous analysis are not extrapolated again
+    assertThat(checkMeasure(performanceMeasureFile).calls()).isEqualTo(400);
+    assertThat(DurationMeasureFiles.fromJson(performanceMeasureFile).calls()).isEqualTo(2);
+    assertThat(analysisMeasureFile).doesNotExist();
+    assertThat(logTester.logs(Level.DEBUG)).containsExactly("Per-visitor performance measures extrapolated by a factor of 3.0");
+  }
+
+  @Test
+  void measures_missing_from_the_performance_measure_file_are_added() {
+    DurationMeasure merged = SampledPerformanceMeasure.merge(measure("JavaSensor", 1, 10, measure("A", 1, 1)),
+      measure("JavaSensor", 1, 20, measure("A", 2, 2), measure("B", 3, 3)));
+
+    assertThat(merged.calls()).isEqualTo(2);
+    assertThat(merged.durationNanos()).isEqualTo(30);
+    assertThat(merged.get("A").calls()).isEqualTo(3);
+    assertThat(merged.get("B").durationNanos()).isEqualTo(3);
+  }
+
+  @Test
+  void missing_or_invalid_analysis_measure_files_are_ignored(@TempDir Path workDir) throws IOException {
+    Path performanceMeasureFile = workDir.resolve("sonar.java.performance.measure.json");
+    SampledPerformanceMeasure.extrapolateAndMerge(workDir.resolve("missing.json"), performanceMeasureFile, 3.0);
+    assertThat(performanceMeasureFile).doesNotExist();
+    assertThat(logTester.logs()).isEmpty();
+
+    Path invalidFile = workDir.resolve("invalid.json");
+    Files.writeString(invalidFile, "not json");
+    SampledPerformanceMeasure.extrapolateAndMerge(invalidFile, performanceMeasureFile, 3.0);
+    assertThat(performanceMeasureFile).doesNotExist();
+    assertThat(invalidFile).doesNotExist();
+    assertThat(logTester.logs(Level.WARN)).hasSize(1);
+    assertThat(logTester.logs(Level.WARN).get(0)).startsWith("Unable to extrapolate the sampled performance measures of " + invalidFile);
+  }
+
+  private static DurationMeasure checkMeasure(Path performanceMeasureFile) throws IOException {
+    return DurationMeasureFiles.fromJson(performanceMeasureFile).get("Scanners").get("IssuableSubscriptionVisitors").get("ACheck");
+  }
+
+  private static DurationMeasure sensorMeasure() {
+    DurationMeasure check = measure("ACheck", 100, 30, measure("RegexParser", 2, 10));
+    DurationMeasure visitors = measure("IssuableSubscriptionVisitors", 10, 500, check);
+    DurationMeasure scanners = measure("Scanners", 10, 900, visitors, measure("OtherCheck", 10, 200));
+    return measure("JavaSensor", 1, 1_000, scanners);
+  }
+
+  private static DurationMeasure measure(String name, long calls, long durationNanos, DurationMeasure... children) {
+    Map<String, DurationMeasure> childrenMap = new LinkedHashMap<>();
+    for (DurationMeasure child : children) {
+      childrenMap.put(child.name(), child);
+    }
+    return new DurationMeasure(name, calls, durationNanos, childrenMap);
+  }
+}
@@ -16,6 +16,8 @@
  */
 package org.sonar.java.caching;
 
+import java.io.ByteArrayInputStream;
+import java.util.List;
 import java.util.Optional;
 import javax.annotation.Nullable;
 import org.junit.jupiter.api.Test;
@@ -70,6 +72,35 @@ class CacheContextImplTest {
     assertThat(cci.getWriteCache()).isEqualTo(new JavaWriteCacheImpl(sensorContext.nextCache()));
   }
 
+  @Test
+  void strings_are_written_and_read_with_the_payload_codec() {
+    var sensorContext = mockSensorContext();
+    doReturn(true).when(sensorContext).isCacheEnabled();
+    CacheContextImpl cci = CacheContextImpl.of(mockSonarComponents(sensorContext, null));
+    byte[] payload = CachePayloadCodec.encodeStrings(List.of("a", "b"));
+
+    CachePayloadCodec.writeStrings(cci, "key", List.of("a", "b"));
+    verify(sensorContext.nextCache()).write("key", payload);
+
+    ReadCache readCache = sensorContext.previousCache();
+    doReturn(true).when(readCache).contains("key");
+    doReturn(new ByteArrayInputStream(payload)).when(readCache).read("key");
+    assertThat(CachePayloadCodec.readStrings(cci, "key")).containsExactly("a", "b");
+    assertThat(CachePayloadCodec.readStrings(cci, "missing")).isNull();
+  }
+
+  @Test
+  void local_cache_is_used_when_the_server_does_not_provide_a_cache() {
+    var sensorContext = mockSensorContext();
+    doReturn(false).when(sensorContext).isCacheEnabled();
+    var sonarComponents = mockSonarComponents(sensorContext, null);
+    doReturn(true).when(sonarComponents).usesLocalCache();
+
+    CacheContextImpl cci = CacheContextImpl.of(sonarComponents);
+    assertThat(cci.isCacheEnabled()).isTrue();
+    assertThat(cci.getReadCache()).isEqualTo(new JavaReadCacheImpl(sensorContext.previousCache()));
+  }
+
   @Test
   void isCacheEnabled_returns_false_when_appropriate() {
     var sensorContext = mockSensorContext();
@@ -205,6 +236,10 @@ class CacheContextImplTest {
   private SonarComponents mockSonarComponents(@Nullable SensorContext sensorContext, @Nullable SonarLintCache sonarLintCache) {
     var sonarComponents = mock(SonarComponents.class);
     doReturn(sensorContext).when(sonarComponents).context();
+    if (sensorContext != null) {
+      doReturn(sensorContext.previousCache()).when(sonarComponents).previousCache();
+      doReturn(sensorContext.nextCache()).when(sonarComponents).nextCache();
+    }
     doReturn(sonarLintCache).when(sonarComponents).sonarLintCache();
 
     return sonarComponents;
@@ -0,0 +1,214 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+import org.sonar.java.testing.ThreadLocalLogTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheIndexTest {
+
+  @RegisterExtension
+  ThreadLocalLogTester logTester = new ThreadLocalLogTester().setLevel(Level.DEBUG);
+
+  private static final String INDEX_KEY = CacheIndex.indexKey("module");
+
+  private final ReadCache previousCache = mock(ReadCache.class);
+  private final WriteCache nextCache = mock(WriteCache.class);
+
+  @Test
+  void small_entries_are_written_once_in_the_index() throws Exception {
+    CacheIndex index = new CacheIndex(previousCache, nextCache, "module");
+    WriteCache writeCache = index.writeCache();
+    byte[] large = new byte[CacheIndex.MAX_ENTRY_SIZE + 1];
+
+    writeCache.write("b", bytes("second"));
+    writeCache.write("a", new ByteArrayInputStream(bytes("first")));
+    writeCache.write("large", large);
+    verify(nextCache).write("large", large);
+    verify(nextCache, never()).write(eq(INDEX_KEY), any(byte[].class));
+
+    index.save();
+    index.save();
+
+    Map<String, byte[]> saved = savedEntries();
+    assertThat(saved).containsOnlyKeys("a", "b");
+    assertThat(saved.get("a")).isEqualTo(bytes("first"));
+    assertThat(saved.get("b")).isEqualTo(bytes("second"));
+    assertThat(logTester.logs(Level.DEBUG)).contains("Cache index saved with 2 entries.");
+  }
+
+  @Test
+  void entries_are_read_from_the_previous_index() throws Exception {
+    mockPreviousIndex(Map.of("a", bytes("first")));
+    when(previousCache.contains("other")).thenReturn(true);
+    when(previousCache.read("other")).thenReturn(new ByteArrayInputStream(bytes("other")));
+
+    ReadCache readCache = new CacheIndex(previousCache, nextCache, "module").readCache();
+
+    assertThat(readCache.contains("a")).isTrue();
+    assertThat(readCache.read("a").readAllBytes()).isEqualTo(bytes("first"));
+    assertThat(readCache.contains("other")).isTrue();
+    assertThat(readCache.read("other").readAllBytes()).isEqualTo(bytes("other"));
+    assertThat(readCache.contains("missing")).isFalse();
+    assertThat(logTester.logs(Level.DEBUG)).contains("Cache index loaded with 1 entries.");
+  }
+
+  @Test
+  void copy_from_previous_keeps_the_entries_of_the_previous_index() throws Exception {
+    mockPreviousIndex(Map.of("a", bytes("first"), "b", bytes("second")));
+    CacheIndex index = new CacheIndex(previousCache, nextCache, "module");
+    WriteCache writeCache = index.writeCache();
+
+    writeCache.copyFromPrevious("a");
+    writeCache.copyFromPrevious("not-indexed");
+    verify(nextCache).copyFromPrevious("not-indexed");
+
+    index.save();
+    Map<String, byte[]> saved = savedEntries();
+    assertThat(saved).containsOnlyKeys("a");
+    assertThat(saved.get("a")).isEqualTo(bytes("first"));
+  }
+
+  @Test
+  void writing_twice_the_same_key_fails() {
+    mockPreviousIndex(Map.of("a", bytes("first")));
+    WriteCache writeCache = new CacheIndex(previousCache, nextCache, "module").writeCache();
+    byte[] large = new byte[CacheIndex.MAX_ENTRY_SIZE + 1];
+
+    writeCache.copyFromPrevious("a");
+    writeCache.write("large", large);
+    writeCache.copyFromPrevious("not-indexed");
+
+    assertThatThrownBy(() -> writeCache.write("a", bytes("other")))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Cache already contains key 'a'");
+    assertThatThrownBy(() -> writeCache.write("large", bytes("small")))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Cache already contains key 'large'");
+    assertThatThrownBy(() -> writeCache.write("not-indexed", bytes("small")))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Cache already contains key 'not-indexed'");
+    assertThatThrownBy(() -> writeCache.copyFromPrevious("a"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Cache already contains key 'a'");
+  }
+
+  @Test
+  void copy_from_previous_fails_when_the_key_was_written_in_the_index() {
+    WriteCache writeCache = new CacheIndex(previousCache, nextCache, "module").writeCache();
+    writeCache.write("a", bytes("first"));
+
+    assertThatThrownBy(() -> writeCache.copyFromPrevious("a"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Cache already contains key 'a'");
+    verify(nextCache, never()).copyFromPrevious("a");
+  }
+
+  @Test
+  void corrupted_index_is_ignored() {
+    when(previousCache.contains(INDEX_KEY)).thenReturn(true);
+    when(previousCache.read(INDEX_KEY)).thenReturn(new ByteArrayInputStream(bytes("not compressed")));
+
+    ReadCache readCache = new CacheIndex(previousCache, nextCache, "module").readCache();
+
+    assertThat(readCache.contains("a")).isFalse();
+    assertThat(logTester.logs(Level.DEBUG)).anyMatch(log -> log.startsWith("Unable to read the cache index, it will be ignored: "));
+  }
+
+  @Test
+  void missing_index_stream_is_ignored() {
+    when(previousCache.contains(INDEX_KEY)).thenReturn(true);
+
+    ReadCache readCache = new CacheIndex(previousCache, nextCache, "module").readCache();
+
+    assertThat(readCache.contains("a")).isFalse();
+  }
+
+  @Test
+  void failure_to_save_the_index_is_logged() {
+    doThrow(new IllegalArgumentException("boom")).when(nextCache).write(eq(INDEX_KEY), any(byte[].class));
+    CacheIndex index = new CacheIndex(previousCache, nextCache, "module");
+
+    index.save();
+
+    assertThat(logTester.logs(Level.WARN)).containsExactly("Unable to save the cache index: boom");
+  }
+
+  @Test
+  void modules_sharing_the_same_cache_have_their_own_index(@TempDir Path cacheDir) throws Exception {
+    LocalCache firstAnalysis = new LocalCache(cacheDir);
+    CacheIndex moduleA = new CacheIndex(firstAnalysis, firstAnalysis, "moduleA");
+    CacheIndex moduleB = new CacheIndex(firstAnalysis, firstAnalysis, "moduleB");
+    moduleA.writeCache().write("a", bytes("first"));
+    moduleB.writeCache().write("b", bytes("second"));
+    moduleA.save();
+    moduleB.save();
+    assertThat(logTester.logs(Level.WARN)).isEmpty();
+    firstAnalysis.save();
+
+    LocalCache secondAnalysis = new LocalCache(cacheDir);
+    assertThat(secondAnalysis.contains(CacheIndex.indexKey("moduleA"))).isTrue();
+    assertThat(secondAnalysis.contains(CacheIndex.indexKey("moduleB"))).isTrue();
+    ReadCache moduleAReadCache = new CacheIndex(secondAnalysis, secondAnalysis, "moduleA").readCache();
+    ReadCache moduleBReadCache = new CacheIndex(secondAnalysis, secondAnalysis, "moduleB").readCache();
+    assertThat(moduleAReadCache.read("a").readAllBytes()).isEqualTo(bytes("first"));
+    assertThat(moduleAReadCache.contains("b")).isFalse();
+    assertThat(moduleBReadCache.read("b").readAllBytes()).isEqualTo(bytes("second"));
+    assertThat(moduleBReadCache.contains("a")).isFalse();
+  }
+
+  private void mockPreviousIndex(Map<String, byte[]> entries) {
+    try {
+      byte[] serialized = CacheIndex.serialize(new TreeMap<>(entries));
+      when(previousCache.contains(INDEX_KEY)).thenReturn(true);
+      when(previousCache.read(INDEX_KEY)).thenReturn(new ByteArrayInputStream(serialized));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Map<String, byte[]> savedEntries() throws Exception {
+    ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+    verify(nextCache).write(eq(INDEX_KEY), captor.capture());
+    return CacheIndex.deserialize(new ByteArrayInputStream(captor.getValue()));
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachePayloadCodecTest {
+
+  @Test
+  void round_trip() {
+    List<String> values = List.of("org.foo", "", "org.bar", "org.foo", "\u00fcn\u00efc\u00f6d\u00e9");
+    byte[] payload = CachePayloadCodec.encodeStrings(values);
+    assertThat(payload[0]).isEqualTo(CachePayloadCodec.MARKER);
+    assertThat(payload[1]).isEqualTo(CachePayloadCodec.FORMAT_VERSION);
+    assertThat(payload[2]).isZero();
+    assertThat(CachePayloadCodec.decodeStrings(payload)).isEqualTo(values);
+
+    assertThat(CachePayloadCodec.decodeStrings(CachePayloadCodec.encodeStrings(List.of()))).isEmpty();
+  }
+
+  @Test
+  void repeated_strings_are_stored_once() {
+    List<String> values = Collections.nCopies(100, "org.sonar.java.SomeQuiteLongTypeName");
+    byte[] payload = CachePayloadCodec.encodeStrings(values);
+    assertThat(payload.length).isLessThan(200);
+    assertThat(CachePayloadCodec.decodeStrings(payload)).isEqualTo(values);
+  }
+
+  @Test
+  void large_bodies_are_compressed() {
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      values.add("org.sonar.java.package" + i + ".Type" + i);
+    }
+    byte[] payload = CachePayloadCodec.encodeStrings(values);
+    assertThat(payload[2]).isEqualTo((byte) CachePayloadCodec.FLAG_COMPRESSED);
+    assertThat(CachePayloadCodec.decodeStrings(payload)).isEqualTo(values);
+  }
+
+  @Test
+  void payloads_in_another_format_are_ignored() {
+    assertThat(CachePayloadCodec.decodeStrings(null)).isNull();
+    assertThat(CachePayloadCodec.decodeStrings(new byte[0])).isNull();
+    assertThat(CachePayloadCodec.decodeStrings("org.foo".getBytes(StandardCharsets.UTF_8))).isNull();
+
+    byte[] payload = CachePayloadCodec.encodeStrings(List.of("org.foo"));
+    byte[] otherVersion = payload.clone();
+    otherVersion[1] = CachePayloadCodec.FORMAT_VERSION + 1;
+    assertThat(CachePayloadCodec.decodeStrings(otherVersion)).isNull();
+    byte[] unknownFlag = payload.clone();
+    unknownFlag[2] = 4;
+    assertThat(CachePayloadCodec.decodeStrings(unknownFlag)).isNull();
+  }
+
+  @Test
+  void malformed_payloads_are_ignored() {
+    byte[] payload = CachePayloadCodec.encodeStrings(List.of("org.foo", "org.bar"));
+    assertThat(CachePayloadCodec.decodeStrings(Arrays.copyOf(payload, payload.length - 1))).isNull();
+    byte[] invalidIndex = payload.clone();
+    invalidIndex[payload.length - 1] = 5;
+    assertThat(CachePayloadCodec.decodeStrings(invalidIndex)).isNull();
+    byte[] tooLongVarint = {CachePayloadCodec.MARKER, CachePayloadCodec.FORMAT_VERSION, 0, -1, -1, -1, -1, -1, 1};
+    assertThat(CachePayloadCodec.decodeStrings(tooLongVarint)).isNull();
+    byte[] invalidCount = {CachePayloadCodec.MARKER, CachePayloadCodec.FORMAT_VERSION, 0, 100};
+    assertThat(CachePayloadCodec.decodeStrings(invalidCount)).isNull();
+    byte[] invalidStringLength = {CachePayloadCodec.MARKER, CachePayloadCodec.FORMAT_VERSION, 0, 1, 100, 0};
+    assertThat(CachePayloadCodec.decodeStrings(invalidStringLength)).isNull();
+
+    List<String> manyValues = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      manyValues.add("value" + i);
+    }
+    byte[] compressed = CachePayloadCodec.encodeStrings(manyValues);
+    assertThat(compressed[2]).isEqualTo((byte) CachePayloadCodec.FLAG_COMPRESSED);
+    assertThat(CachePayloadCodec.decodeStrings(Arrays.copyOf(compressed, compressed.length / 2))).isNull();
+    byte[] notDeflated = {CachePayloadCodec.MARKER, CachePayloadCodec.FORMAT_VERSION, CachePayloadCodec.FLAG_COMPRESSED, 1, 2, 3};
+    assertThat(CachePayloadCodec.decodeStrings(notDeflated)).isNull();
+  }
+}
@@ -39,6 +39,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class ContentHashCacheTest {
@@ -63,7 +64,7 @@ class ContentHashCacheTest {
   @Test
   void hasSameHashCached_returns_false_when_content_hash_file_is_not_in_read_cache_with_proper_logging() {
     String[] messages = new String[]{
-      "Could not find key java:contentHash:MD5:" + inputFile.key() + " in the cache",
+      "Could not find key java:contentHash:MD5-v2:" + inputFile.key() + " in the cache",
       "Reading cache for the file " + inputFile.key(),
       "Writing to the cache for file " + inputFile.key()
     };
@@ -120,8 +121,8 @@ class ContentHashCacheTest {
     SensorContextTester sensorContext = SensorContextTester.create(file.getAbsoluteFile());
     sensorContext.setCacheEnabled(true);
     ReadCache readCache = mock(ReadCache.class);
-    when(readCache.read("java:contentHash:MD5:" + inputFile.key())).thenReturn(new ByteArrayInputStream("Dummy content hash".getBytes()));
-    when(readCache.contains("java:contentHash:MD5:" + inputFile.key())).thenReturn(true);
+    when(readCache.read("java:contentHash:MD5-v2:" + inputFile.key())).thenReturn(new ByteArrayInputStream("Dummy content hash".getBytes()));
+    when(readCache.contains("java:contentHash:MD5-v2:" + inputFile.key())).thenReturn(true);
     WriteCache writeCache = mock(WriteCache.class);
     sensorContext.setPreviousCache(readCache);
     sensorContext.setNextCache(writeCache);
@@ -143,12 +144,12 @@ class ContentHashCacheTest {
     // mocking static method requires mockito-inline, which currently breaks the tests.
     InputFile inputFile1 = mock(InputFile.class);
     when(inputFile1.key()).thenReturn("key");
-    when(readCache.read("java:contentHash:MD5:" + inputFile1.key())).thenReturn(new ByteArrayInputStream("string".getBytes()));
-    when(readCache.contains("java:contentHash:MD5:" + inputFile1.key())).thenReturn(true);
+    when(readCache.read("java:contentHash:MD5-v2:" + inputFile1.key())).thenReturn(new ByteArrayInputStream("string".getBytes()));
+    when(readCache.contains("java:contentHash:MD5-v2:" + inputFile1.key())).thenReturn(true);
     WriteCache writeCache = mock(WriteCache.class);
     sensorContext.setPreviousCache(readCache);
     sensorContext.setNextCache(writeCache);
-    when(inputFile1.contents()).thenThrow(new IOException());
+    when(inputFile1.inputStream()).thenThrow(new IOException());
     ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
     Assertions.assertFalse(contentHashCache.hasSameHashCached(inputFile1));
 
@@ -156,6 +157,41 @@ class ContentHashCacheTest {
       contains("Failed to compute content hash for file " + inputFile1.key());
   }
 
+  @Test
+  void hasSameHash_does_not_write_to_the_cache() throws IOException, NoSuchAlgorithmException {
+    SensorContextTester sensorContext = getSonarComponentsTester();
+    ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
+    Assertions.assertTrue(contentHashCache.hasSameHash(inputFile));
+    verifyNoInteractions(sensorContext.nextCache());
+
+    sensorContext = getSensorContextTesterWithEmptyCache(true);
+    contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
+    Assertions.assertFalse(contentHashCache.hasSameHash(inputFile));
+    verifyNoInteractions(sensorContext.nextCache());
+
+    InputFile unchangedFile = mock(InputFile.class);
+    when(unchangedFile.status()).thenReturn(InputFile.Status.SAME);
+    contentHashCache = new ContentHashCache(mockSonarComponents(getSensorContextTesterWithEmptyCache(false)));
+    Assertions.assertTrue(contentHashCache.hasSameHash(unchangedFile));
+  }
+
+  @Test
+  void hasSameHash_returns_false_when_FileHashingUtils_throws_exception() throws IOException {
+    logTester.setLevel(Level.WARN);
+    SensorContextTester sensorContext = SensorContextTester.create(file.getAbsoluteFile());
+    sensorContext.setCacheEnabled(true);
+    ReadCache readCache = mock(ReadCache.class);
+    InputFile inputFile1 = mock(InputFile.class);
+    when(inputFile1.key()).thenReturn("key");
+    when(readCache.read("java:contentHash:MD5-v2:" + inputFile1.key())).thenReturn(new ByteArrayInputStream("string".getBytes()));
+    sensorContext.setPreviousCache(readCache);
+    when(inputFile1.inputStream()).thenThrow(new IOException());
+    ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
+    Assertions.assertFalse(contentHashCache.hasSameHash(inputFile1));
+
+    assertThat(logTester.logs(Level.WARN)).contains("Failed to compute content hash for file " + inputFile1.key());
+  }
+
   @Test
   void contains_returns_true_when_file_is_in_cache() throws IOException, NoSuchAlgorithmException {
     ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(getSonarComponentsTester()));
@@ -177,7 +213,7 @@ class ContentHashCacheTest {
   @Test
   void writeToCache_returns_false_when_writing_to_cache_throws_exception_with_proper_logging() throws IOException,
     NoSuchAlgorithmException {
-    String message = "Tried to write multiple times to cache key java:contentHash:MD5:" + inputFile.key() + ". Ignoring writes after the " +
+    String message = "Tried to write multiple times to cache key java:contentHash:MD5-v2:" + inputFile.key() + ". Ignoring writes after the " +
       "first.";
     assertThat(writeToCache_returns_false_when_writing_to_cache_throws_exception(Level.TRACE)).contains(message);
     assertThat(writeToCache_returns_false_when_writing_to_cache_throws_exception(Level.WARN)).doesNotContain(message);
@@ -190,7 +226,7 @@ class ContentHashCacheTest {
     sensorContext.setCacheEnabled(true);
     WriteCache writeCache = mock(WriteCache.class);
     sensorContext.setNextCache(writeCache);
-    doThrow(new IllegalArgumentException()).when(writeCache).write("java:contentHash:MD5:" + inputFile.key(),
+    doThrow(new IllegalArgumentException()).when(writeCache).write("java:contentHash:MD5-v2:" + inputFile.key(),
       FileHashingUtils.inputFileContentHash(file.getPath()));
     ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
     Assertions.assertFalse(contentHashCache.writeToCache(inputFile));
@@ -208,7 +244,7 @@ class ContentHashCacheTest {
     // mocking static method requires mockito-inline, which currently breaks the tests.
     InputFile inputFile1 = mock(InputFile.class);
     when(inputFile1.key()).thenReturn("key");
-    when(inputFile1.contents()).thenThrow(new IOException());
+    when(inputFile1.inputStream()).thenThrow(new IOException());
     ContentHashCache contentHashCache = new ContentHashCache(mockSonarComponents(sensorContext));
     Assertions.assertFalse(contentHashCache.writeToCache(inputFile1));
 
@@ -239,7 +275,7 @@ class ContentHashCacheTest {
     SensorContextTester sensorContext = SensorContextTester.create(file.getAbsoluteFile());
     sensorContext.setCacheEnabled(isCacheEnabled);
     ReadCache readCache = mock(ReadCache.class);
-    when(readCache.read("java:contentHash:MD5:" + inputFile.key())).thenThrow(new IllegalArgumentException());
+    when(readCache.read("java:contentHash:MD5-v2:" + inputFile.key())).thenThrow(new IllegalArgumentException());
     WriteCache writeCache = mock(WriteCache.class);
     sensorContext.setPreviousCache(readCache);
     sensorContext.setNextCache(writeCache);
@@ -251,8 +287,8 @@ class ContentHashCacheTest {
     SensorContextTester sensorContext = SensorContextTester.create(file.getAbsoluteFile());
     sensorContext.setCacheEnabled(true);
     ReadCache readCache = mock(ReadCache.class);
-    when(readCache.read("java:contentHash:MD5:" + inputFile.key())).thenReturn(new ByteArrayInputStream(FileHashingUtils.inputFileContentHash(inputFile)));
-    when(readCache.contains("java:contentHash:MD5:" + inputFile.key())).thenReturn(true);
+    when(readCache.read("java:contentHash:MD5-v2:" + inputFile.key())).thenReturn(new ByteArrayInputStream(FileHashingUtils.inputFileContentHash(inputFile)));
+    when(readCache.contains("java:contentHash:MD5-v2:" + inputFile.key())).thenReturn(true);
     WriteCache writeCache = mock(WriteCache.class);
     sensorContext.setPreviousCache(readCache);
     sensorContext.setNextCache(writeCache);
@@ -263,6 +299,8 @@ class ContentHashCacheTest {
   private static SonarComponents mockSonarComponents(SensorContext sensorContext) {
     var sonarComponents = mock(SonarComponents.class);
     doReturn(sensorContext).when(sonarComponents).context();
+    doReturn(sensorContext.previousCache()).when(sonarComponents).previousCache();
+    doReturn(sensorContext.nextCache()).when(sonarComponents).nextCache();
 
     return sonarComponents;
   }
@@ -0,0 +1,110 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.java.TestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileHashingUtilsTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void hash_of_the_raw_bytes_of_local_files() throws IOException, NoSuchAlgorithmException {
+    // larger than the reading buffer
+    byte[] content = "class A { }\n".repeat(10_000).getBytes(StandardCharsets.ISO_8859_1);
+    Path path = tempDir.resolve("A.java");
+    Files.write(path, content);
+    byte[] expected = MessageDigest.getInstance("MD5").digest(content);
+
+    assertThat(FileHashingUtils.inputFileContentHash(path.toString())).isEqualTo(expected);
+    assertThat(FileHashingUtils.inputFileContentHash(TestUtils.inputFile(path.toFile()))).isEqualTo(expected);
+  }
+
+  @Test
+  void hash_of_files_which_are_not_on_the_local_file_system() throws IOException, NoSuchAlgorithmException {
+    InputFile inputFile = new TestInputFileBuilder("module", "src/Missing.java")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents("class Missing { }")
+      .build();
+    byte[] expected = MessageDigest.getInstance("MD5").digest("class Missing { }".getBytes(StandardCharsets.UTF_8));
+    assertThat(FileHashingUtils.inputFileContentHash(inputFile)).isEqualTo(expected);
+  }
+
+  @Test
+  void byte_order_marks_are_not_part_of_the_hash() throws IOException, NoSuchAlgorithmException {
+    byte[] content = "class A { }".getBytes(StandardCharsets.UTF_8);
+    byte[] expected = MessageDigest.getInstance("MD5").digest(content);
+    Path withBom = tempDir.resolve("WithBom.java");
+    Files.write(withBom, concat(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, content));
+    // without contents, the input stream of the file is read from the disk and skips the byte order mark
+    InputFile localFile = new TestInputFileBuilder("module", tempDir.toFile(), withBom.toFile()).setCharset(StandardCharsets.UTF_8).build();
+    // same file, only read through its input stream
+    InputFile remoteFile = mock(InputFile.class);
+    when(remoteFile.inputStream()).thenAnswer(invocation -> localFile.inputStream());
+
+    assertThat(FileHashingUtils.inputFileContentHash(localFile)).isEqualTo(expected);
+    assertThat(FileHashingUtils.inputFileContentHash(withBom.toString())).isEqualTo(expected);
+    assertThat(FileHashingUtils.inputFileContentHash(remoteFile)).isEqualTo(expected);
+
+    byte[] utf16Content = "class A { }".getBytes(StandardCharsets.UTF_16LE);
+    Path utf16WithBom = tempDir.resolve("Utf16WithBom.java");
+    Files.write(utf16WithBom, concat(new byte[] {(byte) 0xFF, (byte) 0xFE}, utf16Content));
+    assertThat(FileHashingUtils.inputFileContentHash(utf16WithBom.toString())).isEqualTo(MessageDigest.getInstance("MD5").digest(utf16Content));
+
+    Path tiny = tempDir.resolve("Tiny.java");
+    Files.write(tiny, new byte[] {(byte) 0xEF, (byte) 0xBB});
+    assertThat(FileHashingUtils.inputFileContentHash(tiny.toString())).isEqualTo(MessageDigest.getInstance("MD5").digest(new byte[] {(byte) 0xEF, (byte) 0xBB}));
+  }
+
+  private static byte[] concat(byte[] first, byte[] second) {
+    byte[] result = new byte[first.length + second.length];
+    System.arraycopy(first, 0, result, 0, first.length);
+    System.arraycopy(second, 0, result, first.length, second.length);
+    return result;
+  }
+
+  @Test
+  void hashes_computed_in_parallel() throws IOException, NoSuchAlgorithmException {
+    File file = new File("src/test/files/api/JavaFileScannerContext.java");
+    InputFile inputFile = TestUtils.inputFile(file.getAbsoluteFile().getAbsolutePath(), file, InputFile.Type.MAIN);
+    InputFile unreadableFile = mock(InputFile.class);
+    when(unreadableFile.key()).thenReturn("unreadable");
+    when(unreadableFile.inputStream()).thenThrow(new IOException());
+
+    Map<String, byte[]> hashes = FileHashingUtils.inputFileContentHashes(List.of(inputFile, unreadableFile), 2);
+    assertThat(hashes).containsOnlyKeys(inputFile.key());
+    assertThat(hashes.get(inputFile.key())).isEqualTo(FileHashingUtils.inputFileContentHash(inputFile));
+  }
+}
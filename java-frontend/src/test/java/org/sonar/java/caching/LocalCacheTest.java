@@ -0,0 +1,112 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonar.java.testing.ThreadLocalLogTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalCacheTest {
+
+  @RegisterExtension
+  ThreadLocalLogTester logTester = new ThreadLocalLogTester().setLevel(Level.DEBUG);
+
+  @TempDir
+  Path workDir;
+
+  @Test
+  void entries_are_kept_from_one_analysis_to_the_next() throws IOException {
+    LocalCache firstAnalysis = new LocalCache(workDir);
+    assertThat(firstAnalysis.contains("a")).isFalse();
+    firstAnalysis.write("a", bytes("first"));
+    firstAnalysis.write("b", new ByteArrayInputStream(bytes("second")));
+    firstAnalysis.save();
+    assertThat(workDir.resolve(LocalCache.FILE_NAME)).isRegularFile();
+    assertThat(logTester.logs(Level.DEBUG)).contains("No local cache found in " + workDir.resolve(LocalCache.FILE_NAME) + ".");
+
+    LocalCache secondAnalysis = new LocalCache(workDir);
+    assertThat(secondAnalysis.contains("a")).isTrue();
+    assertThat(secondAnalysis.read("a").readAllBytes()).isEqualTo(bytes("first"));
+    assertThat(secondAnalysis.read("b").readAllBytes()).isEqualTo(bytes("second"));
+    secondAnalysis.copyFromPrevious("a");
+    secondAnalysis.save();
+
+    LocalCache thirdAnalysis = new LocalCache(workDir);
+    assertThat(thirdAnalysis.contains("a")).isTrue();
+    assertThat(thirdAnalysis.contains("b")).isFalse();
+  }
+
+  @Test
+  void invalid_operations_fail_like_the_server_cache() {
+    LocalCache cache = new LocalCache(workDir);
+    cache.write("a", bytes("first"));
+
+    assertThatThrownBy(() -> cache.write("a", bytes("other")))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Cache already contains key 'a'");
+    assertThatThrownBy(() -> cache.read("missing"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Local cache does not contain key 'missing'");
+    assertThatThrownBy(() -> cache.copyFromPrevious("missing"))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Local cache does not contain key 'missing'");
+  }
+
+  @Test
+  void only_the_first_save_has_an_effect() throws IOException {
+    LocalCache cache = new LocalCache(workDir);
+    cache.write("a", bytes("first"));
+    cache.save();
+    Files.delete(workDir.resolve(LocalCache.FILE_NAME));
+    cache.save();
+    assertThat(workDir.resolve(LocalCache.FILE_NAME)).doesNotExist();
+  }
+
+  @Test
+  void corrupted_cache_file_is_ignored() throws IOException {
+    Files.write(workDir.resolve(LocalCache.FILE_NAME), bytes("corrupted"));
+
+    LocalCache cache = new LocalCache(workDir);
+
+    assertThat(cache.contains("a")).isFalse();
+    assertThat(logTester.logs(Level.DEBUG)).anyMatch(log -> log.startsWith("Unable to read the local cache, it will be ignored: "));
+  }
+
+  @Test
+  void failure_to_save_is_logged() throws IOException {
+    Path notADirectory = Files.createFile(workDir.resolve("file"));
+    LocalCache cache = new LocalCache(notADirectory);
+
+    cache.save();
+
+    assertThat(logTester.logs(Level.WARN)).anyMatch(log -> log.startsWith("Unable to save the local cache in "));
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.caching;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.TestUtils;
+import org.sonar.java.testing.ThreadLocalLogTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class TypeDependencyCacheTest {
+
+  @RegisterExtension
+  ThreadLocalLogTester logTester = new ThreadLocalLogTester().setLevel(Level.TRACE);
+
+  private final InputFile inputFile = TestUtils.inputFile("src/test/files/api/JavaFileScannerContext.java");
+  private final ReadCache readCache = mock(ReadCache.class);
+  private final WriteCache writeCache = mock(WriteCache.class);
+
+  @Test
+  void read_types_from_previous_cache() {
+    when(readCache.contains("java:declaredTypes:" + inputFile.key())).thenReturn(true);
+    when(readCache.read("java:declaredTypes:" + inputFile.key())).thenReturn(new ByteArrayInputStream(CachePayloadCodec.encodeStrings(List.of("org.A", "org.A$B"))));
+    when(readCache.contains("java:referencedTypes:" + inputFile.key())).thenReturn(true);
+    when(readCache.read("java:referencedTypes:" + inputFile.key())).thenReturn(new ByteArrayInputStream(CachePayloadCodec.encodeStrings(List.of())));
+
+    TypeDependencyCache cache = new TypeDependencyCache(sonarComponents(true));
+    assertThat(cache.isEnabled()).isTrue();
+    assertThat(cache.readDeclaredTypes(inputFile)).containsExactlyInAnyOrder("org.A", "org.A$B");
+    assertThat(cache.readReferencedTypes(inputFile)).isEmpty();
+  }
+
+  @Test
+  void missing_or_unreadable_types_are_unknown() {
+    when(readCache.contains("java:declaredTypes:" + inputFile.key())).thenReturn(true);
+    when(readCache.read("java:declaredTypes:" + inputFile.key())).thenReturn(null);
+    when(readCache.contains("java:referencedTypes:" + inputFile.key())).thenReturn(true);
+    when(readCache.read("java:referencedTypes:" + inputFile.key())).thenThrow(new IllegalArgumentException());
+
+    TypeDependencyCache cache = new TypeDependencyCache(sonarComponents(true));
+    assertThat(cache.readDeclaredTypes(inputFile)).isNull();
+    assertThat(cache.readReferencedTypes(inputFile)).isNull();
+    assertThat(logTester.logs(Level.TRACE)).contains("Could not read key java:referencedTypes:" + inputFile.key() + " from the cache");
+  }
+
+  @Test
+  void types_written_in_another_format_are_unknown() {
+    when(readCache.contains("java:declaredTypes:" + inputFile.key())).thenReturn(true);
+    when(readCache.read("java:declaredTypes:" + inputFile.key())).thenReturn(new ByteArrayInputStream("org.A\norg.B".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(new TypeDependencyCache(sonarComponents(true)).readDeclaredTypes(inputFile)).isNull();
+  }
+
+  @Test
+  void write_types_to_next_cache() {
+    doThrow(new IllegalArgumentException()).when(writeCache).write("java:referencedTypes:" + inputFile.key(), CachePayloadCodec.encodeStrings(List.of("org.C")));
+
+    new TypeDependencyCache(sonarComponents(true)).write(inputFile, List.of("org.A", "org.B"), List.of("org.C"));
+    verify(writeCache).write("java:declaredTypes:" + inputFile.key(), CachePayloadCodec.encodeStrings(List.of("org.A", "org.B")));
+    assertThat(logTester.logs(Level.TRACE)).contains(
+      "Writing type dependencies to the cache for file " + inputFile.key(),
+      "Tried to write multiple times to cache key java:referencedTypes:" + inputFile.key() + ". Ignoring writes after the first.");
+  }
+
+  @Test
+  void file_keys_are_stored_per_module() {
+    when(readCache.contains("java:typeDependencyFiles:module")).thenReturn(true);
+    when(readCache.read("java:typeDependencyFiles:module")).thenReturn(new ByteArrayInputStream(CachePayloadCodec.encodeStrings(List.of("module:src/A.java"))));
+
+    TypeDependencyCache cache = new TypeDependencyCache(sonarComponents(true));
+    assertThat(cache.readFileKeys("module")).containsExactly("module:src/A.java");
+    assertThat(cache.readFileKeys("other")).isNull();
+
+    cache.writeFileKeys("module", List.of("module:src/B.java"));
+    verify(writeCache).write("java:typeDependencyFiles:module", CachePayloadCodec.encodeStrings(List.of("module:src/B.java")));
+  }
+
+  @Test
+  void copy_types_from_previous_cache() {
+    when(readCache.contains("java:declaredTypes:" + inputFile.key())).thenReturn(true);
+    when(readCache.contains("java:referencedTypes:" + inputFile.key())).thenReturn(false);
+    doThrow(new IllegalArgumentException()).when(writeCache).copyFromPrevious("java:declaredTypes:" + inputFile.key());
+
+    new TypeDependencyCache(sonarComponents(true)).copyFromPrevious(inputFile);
+    verify(writeCache).copyFromPrevious("java:declaredTypes:" + inputFile.key());
+    verify(writeCache, never()).copyFromPrevious("java:referencedTypes:" + inputFile.key());
+    assertThat(logTester.logs(Level.TRACE))
+      .contains("Tried to copy multiple times cache key java:declaredTypes:" + inputFile.key() + ". Ignoring copies after the first.");
+  }
+
+  @Test
+  void disabled_cache() {
+    TypeDependencyCache cache = new TypeDependencyCache(sonarComponents(false));
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.readDeclaredTypes(inputFile)).isNull();
+    cache.write(inputFile, List.of("org.A"), List.of());
+    cache.copyFromPrevious(inputFile);
+    cache.writeFileKeys("module", List.of(inputFile.key()));
+    verifyNoInteractions(readCache, writeCache);
+    assertThat(logTester.logs(Level.TRACE))
+      .contains("Cannot write type dependencies to the cache when the cache is disabled (" + inputFile.key() + ").");
+  }
+
+  @Test
+  void disabled_without_the_experimental_property() {
+    SonarComponents sonarComponents = sonarComponents(true);
+    doReturn(false).when(sonarComponents).isTypeDependencyTrackingEnabled();
+    TypeDependencyCache cache = new TypeDependencyCache(sonarComponents);
+    assertThat(cache.isEnabled()).isFalse();
+    cache.writeFileKeys("module", List.of(inputFile.key()));
+    verifyNoInteractions(readCache, writeCache);
+  }
+
+  private SonarComponents sonarComponents(boolean cacheEnabled) {
+    SensorContextTester sensorContext = SensorContextTester.create(inputFile.file().getParentFile());
+    sensorContext.setCacheEnabled(cacheEnabled);
+    sensorContext.setPreviousCache(readCache);
+    sensorContext.setNextCache(writeCache);
+    var sonarComponents = mock(SonarComponents.class);
+    doReturn(sensorContext).when(sonarComponents).context();
+    doReturn(sensorContext.previousCache()).when(sonarComponents).previousCache();
+    doReturn(sensorContext.nextCache()).when(sonarComponents).nextCache();
+    doReturn(true).when(sonarComponents).isTypeDependencyTrackingEnabled();
+    return sonarComponents;
+  }
+}
@@ -89,8 +89,8 @@ class ClassesLayoutTest {
   @Test
   void type() {
     assertAll(
-      () -> assertThat(instanceSize(JType.class, X86_64)).isEqualTo(72),
-      () -> assertThat(instanceSize(JType.class, X86_64_COOPS)).isEqualTo(40)
+      () -> assertThat(instanceSize(JType.class, X86_64)).isEqualTo(80),
+      () -> assertThat(instanceSize(JType.class, X86_64_COOPS)).isEqualTo(48)
     );
   }
 
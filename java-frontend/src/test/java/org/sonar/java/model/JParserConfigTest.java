@@ -16,13 +16,40 @@
  */
 package org.sonar.java.model;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.dom.ASTParser;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.event.Level;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.AnalysisProgress;
+import org.sonar.java.TestUtils;
 import org.sonar.java.testing.ThreadLocalLogTester;
+import org.sonar.plugins.java.api.semantic.Symbol;
+import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+import org.sonar.plugins.java.api.tree.MethodTree;
+import org.sonar.plugins.java.api.tree.ReturnStatementTree;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
 import static org.sonar.java.model.JParserConfig.shouldEnablePreviewFlag;
 
 class JParserConfigTest {
@@ -55,4 +82,132 @@ class JParserConfigTest {
     JParserConfig.Mode.BATCH.create(new JavaVersionImpl(17), Collections.emptyList(), true);
     assertThat(logTester.logs()).containsExactly("The Java analyzer will ignore the unnamed module for split packages.");
   }
+
+  @Test
+  void only_enabled_warnings_are_reported() {
+    String source = """
+      import java.util.List;
+      class A {
+        void f(int i) {
+          i = i;
+          Object o = (Object) "";
+        }
+      }
+      """;
+    JParserConfig config = JParserConfig.Mode.FILE_BY_FILE.create(JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION, JParserTestUtils.DEFAULT_CLASSPATH);
+    JavaTree.CompilationUnitTreeImpl tree = (JavaTree.CompilationUnitTreeImpl) JParser.parse(config.astParser(), "21", "A.java", source);
+    assertThat(tree.warnings(JProblem.Type.UNUSED_IMPORT)).hasSize(1);
+    assertThat(tree.warnings(JProblem.Type.ASSIGNMENT_HAS_NO_EFFECT)).hasSize(1);
+    assertThat(tree.warnings(JProblem.Type.REDUNDANT_CAST)).hasSize(1);
+
+    config.setEnabledWarnings(EnumSet.of(JProblem.Type.UNUSED_IMPORT));
+    tree = (JavaTree.CompilationUnitTreeImpl) JParser.parse(config.astParser(), "21", "A.java", source);
+    assertThat(tree.warnings(JProblem.Type.UNUSED_IMPORT)).hasSize(1);
+    assertThat(tree.warnings(JProblem.Type.ASSIGNMENT_HAS_NO_EFFECT)).isEmpty();
+    assertThat(tree.warnings(JProblem.Type.REDUNDANT_CAST)).isEmpty();
+
+    config.setEnabledWarnings(EnumSet.noneOf(JProblem.Type.class));
+    tree = (JavaTree.CompilationUnitTreeImpl) JParser.parse(config.astParser(), "21", "A.java", source);
+    assertThat(tree.warnings(JProblem.Type.UNUSED_IMPORT)).isEmpty();
+  }
+
+  @Test
+  void resolved_batch_is_converted_and_analyzed_later_with_its_semantic(@TempDir Path dir) throws Exception {
+    Path fileA = Files.writeString(dir.resolve("A.java"), "class A {}");
+    Path fileB = Files.writeString(dir.resolve("B.java"), "class B extends A {}");
+    List<InputFile> inputFiles = List.of(TestUtils.inputFile(fileA.toFile()), TestUtils.inputFile(fileB.toFile()));
+    JParserConfig.Batch config = JParserConfig.createBatch(JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION, JParserTestUtils.DEFAULT_CLASSPATH, false);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    JParserConfig.ResolvedBatch batch;
+    try {
+      batch = executor.submit(() -> config.resolve(inputFiles, () -> false)).get();
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(batch.size()).isEqualTo(2);
+
+    List<String> trace = new ArrayList<>();
+    batch.analyze(() -> false, new AnalysisProgress(inputFiles.size()), (inputFile, result) -> {
+      try {
+        ClassTree classTree = (ClassTree) result.get().types().get(0);
+        Type superClass = classTree.symbol().superClass();
+        trace.add(classTree.simpleName().name() + " extends " + (superClass == null ? "nothing" : superClass.fullyQualifiedName()));
+      } catch (Exception e) {
+        fail(e);
+      }
+    });
+    assertThat(trace).containsExactlyInAnyOrder("A extends java.lang.Object", "B extends A");
+    assertThat(logTester.logs()).doesNotContainSubsequence("Fallback to file by file analysis for");
+  }
+
+  @Test
+  void resolved_batch_falls_back_to_file_by_file_on_the_analysis_thread() {
+    List<InputFile> inputFiles = Arrays.asList(
+      TestUtils.inputFile("src/test/files/metrics/Classes.java"),
+      TestUtils.inputFile("src/test/files/metrics/Methods.java"));
+    JParserConfig.Batch config = spy(JParserConfig.createBatch(JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION, List.of(), false));
+    ASTParser astParser = mock(ASTParser.class);
+    doThrow(new NullPointerException("Boom!")).when(astParser).createASTs(any(String[].class), any(), any(), any(), any());
+    when(config.astParser()).thenReturn(astParser);
+
+    JParserConfig.ResolvedBatch batch = config.resolve(inputFiles, () -> false);
+    assertThat(logTester.logs()).isEmpty();
+
+    List<String> analyzed = new ArrayList<>();
+    batch.analyze(() -> false, new AnalysisProgress(inputFiles.size()), (inputFile, result) -> analyzed.add(inputFile.filename()));
+    assertThat(logTester.logs()).containsExactly(
+      "Starting batch processing.",
+      "Unexpected NullPointerException: Boom!",
+      "Fallback to file by file analysis for 2 files");
+    assertThat(analyzed).containsExactly("Classes.java", "Methods.java");
+  }
+
+  @Test
+  void resolved_batch_analysis_can_be_cancelled() {
+    List<InputFile> inputFiles = List.of(TestUtils.inputFile("src/test/files/metrics/Classes.java"));
+    JParserConfig.ResolvedBatch batch = JParserConfig.createBatch(JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION, JParserTestUtils.DEFAULT_CLASSPATH, false)
+      .resolve(inputFiles, () -> false);
+    AnalysisProgress analysisProgress = new AnalysisProgress(inputFiles.size());
+    List<String> analyzed = new ArrayList<>();
+    assertThatThrownBy(() -> batch.analyze(() -> true, analysisProgress, (inputFile, result) -> analyzed.add(inputFile.filename())))
+      .isInstanceOf(OperationCanceledException.class);
+    assertThat(analyzed).isEmpty();
+  }
+
+  @Test
+  void bindings_of_a_resolved_batch_are_still_valid_once_ecj_has_cleaned_up_its_units(@TempDir Path dir) throws Exception {
+    Path fileA = Files.writeString(dir.resolve("A.java"), "import java.util.List; class A { List<String> names(int size) { return null; } }");
+    Path fileB = Files.writeString(dir.resolve("B.java"), "class B { Object call(A a) { return a.names(42); } }");
+    List<InputFile> inputFiles = List.of(TestUtils.inputFile(fileA.toFile()), TestUtils.inputFile(fileB.toFile()));
+
+    // createASTs has returned, so ECJ has already cleaned up the scopes of each compilation unit
+    JParserConfig.ResolvedBatch batch = JParserConfig.createBatch(JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION, JParserTestUtils.DEFAULT_CLASSPATH, false)
+      .resolve(inputFiles, () -> false);
+
+    List<String> trace = new ArrayList<>();
+    batch.analyze(() -> false, new AnalysisProgress(inputFiles.size()), (inputFile, result) -> {
+      try {
+        ClassTree classTree = (ClassTree) result.get().types().get(0);
+        MethodTree methodTree = (MethodTree) classTree.members().get(0);
+        Symbol.MethodSymbol methodSymbol = methodTree.symbol();
+        trace.add(methodSymbol.signature() + " returns " + methodSymbol.returnType().type().fullyQualifiedName());
+        if ("B".equals(classTree.simpleName().name())) {
+          ReturnStatementTree returnStatement = (ReturnStatementTree) methodTree.block().body().get(0);
+          MethodInvocationTree invocation = (MethodInvocationTree) returnStatement.expression();
+          Symbol.MethodSymbol invokedSymbol = invocation.methodSymbol();
+          assertThat(invokedSymbol.isUnknown()).isFalse();
+          trace.add("invokes " + invokedSymbol.signature() + " of type " + invocation.symbolType().fullyQualifiedName()
+            + "<" + invocation.symbolType().typeArguments().get(0).fullyQualifiedName() + ">");
+        }
+      } catch (Exception e) {
+        fail(e);
+      }
+    });
+    assertThat(trace).containsExactlyInAnyOrder(
+      "A#names(I)Ljava/util/List; returns java.util.List",
+      "B#call(LA;)Ljava/lang/Object; returns java.lang.Object",
+      "invokes A#names(I)Ljava/util/List; of type java.util.List<java.lang.String>");
+    assertThat(logTester.logs()).doesNotContainSubsequence("Fallback to file by file analysis for");
+  }
 }
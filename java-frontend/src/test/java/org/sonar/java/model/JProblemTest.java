@@ -16,11 +16,13 @@
  */
 package org.sonar.java.model;
 
+import org.eclipse.jdt.core.JavaCore;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class JProblemTest {
@@ -51,4 +53,10 @@ class JProblemTest {
       new JProblem("a", JProblem.Type.UNDEFINED_TYPE).hashCode(),
       new JProblem("a", JProblem.Type.PREVIEW_FEATURE_USED).hashCode());
   }
+
+  @Test
+  void test_compiler_option_key() {
+    assertNull(JProblem.Type.UNDEFINED_TYPE.compilerOptionKey());
+    assertEquals(JavaCore.COMPILER_PB_UNUSED_IMPORT, JProblem.Type.UNUSED_IMPORT.compilerOptionKey());
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.model;
+
+import java.util.Objects;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class JTypeHierarchyTest {
+
+  private JSema sema;
+
+  @BeforeEach
+  void setup() {
+    ASTParser astParser = ASTParser.newParser(AST.getJLSLatest());
+    astParser.setEnvironment(new String[0], new String[0], new String[0], true);
+    astParser.setResolveBindings(true);
+    astParser.setUnitName("File.java");
+    astParser.setSource("".toCharArray());
+    sema = new JSema(astParser.createAST(null).getAST());
+  }
+
+  @Test
+  void closures_are_identified_by_binding_key_and_have_dense_ids() {
+    JTypeHierarchy hierarchy = new JTypeHierarchy();
+    JTypeHierarchy.Closure closure = hierarchy.closure(binding("java.lang.String"));
+    assertThat(closure.id).isZero();
+    assertThat(hierarchy.closure(binding("java.lang.String"))).isSameAs(closure);
+    assertThat(hierarchy.closure(binding("java.lang.Object")).id).isEqualTo(1);
+    assertThat(hierarchy.closure(binding("java.io.Serializable")).id).isEqualTo(2);
+    assertThat(hierarchy.closure(binding("java.lang.Object")).id).isEqualTo(1);
+  }
+
+  @Test
+  void types_beyond_the_maximum_are_not_shared() {
+    JTypeHierarchy hierarchy = new JTypeHierarchy(2);
+    JTypeHierarchy.Closure string = hierarchy.closure(binding("java.lang.String"));
+    JTypeHierarchy.Closure object = hierarchy.closure(binding("java.lang.Object"));
+    assertThat(hierarchy.closure(binding("java.io.Serializable"))).isSameAs(JTypeHierarchy.NOT_SHARED);
+    assertThat(hierarchy.closure(binding("java.lang.String"))).isSameAs(string);
+    assertThat(hierarchy.closure(binding("java.lang.Object"))).isSameAs(object);
+  }
+
+  @Test
+  void closures_store_the_known_results() {
+    JTypeHierarchy.Closure closure = new JTypeHierarchy().closure(binding("java.lang.String"));
+    assertThat(closure.get(3)).isEqualTo(-1);
+    closure.set(3, true);
+    closure.set(4, false);
+    assertThat(closure.get(3)).isEqualTo(1);
+    assertThat(closure.get(4)).isZero();
+    assertThat(closure.get(5)).isEqualTo(-1);
+  }
+
+  @Test
+  void recovered_captured_and_null_types_are_not_shared() {
+    JTypeHierarchy hierarchy = new JTypeHierarchy();
+    ITypeBinding recovered = mock(ITypeBinding.class);
+    doReturn(true).when(recovered).isRecovered();
+    ITypeBinding captured = mock(ITypeBinding.class);
+    doReturn(true).when(captured).isCapture();
+    ITypeBinding nullType = mock(ITypeBinding.class);
+    doReturn(true).when(nullType).isNullType();
+    ITypeBinding withoutKey = mock(ITypeBinding.class);
+
+    assertThat(hierarchy.closure(recovered)).isSameAs(JTypeHierarchy.NOT_SHARED);
+    assertThat(hierarchy.closure(captured)).isSameAs(JTypeHierarchy.NOT_SHARED);
+    assertThat(hierarchy.closure(nullType)).isSameAs(JTypeHierarchy.NOT_SHARED);
+    assertThat(hierarchy.closure(withoutKey)).isSameAs(JTypeHierarchy.NOT_SHARED);
+  }
+
+  private ITypeBinding binding(String name) {
+    return Objects.requireNonNull(sema.resolveType(name));
+  }
+
+}
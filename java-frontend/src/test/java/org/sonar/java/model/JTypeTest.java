@@ -41,6 +41,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.java.model.assertions.TypeAssert.assertThat;
 
@@ -295,6 +297,23 @@ class JTypeTest {
       .containsExactly("NullPointerException while resolving isSubTypeCompatible()");
   }
 
+  @Test
+  void is_subtype_of_results_are_shared_by_the_types_of_the_hierarchy() {
+    JType objectType = type("java.lang.Object");
+    ITypeBinding stringBinding = spy(Objects.requireNonNull(sema.resolveType("java.lang.String")));
+    JType stringType = new JType(sema, stringBinding);
+    JType sameStringType = new JType(new JSema(ast, sema.shared), stringBinding);
+
+    assertThat(stringType.isSubtypeOf(objectType)).isTrue();
+    assertThat(stringType.isSubtypeOf(objectType)).isTrue();
+    assertThat(sameStringType.isSubtypeOf(objectType)).isTrue();
+    verify(stringBinding, times(1)).isSubTypeCompatible(any());
+
+    JType stringTypeOfOtherHierarchy = new JType(new JSema(ast), stringBinding);
+    assertThat(stringTypeOfOtherHierarchy.isSubtypeOf(objectType)).isTrue();
+    verify(stringBinding, times(2)).isSubTypeCompatible(any());
+  }
+
   @Test
   void wildcard() {
     JavaTree.CompilationUnitTreeImpl cu = test("class C<T1, T2, T3> { C<? extends String, ? extends String, ? super String> f; }");
@@ -322,6 +341,7 @@ class JTypeTest {
     return sema.type(typeBinding);
   }
 
+  private AST ast;
   private JSema sema;
 
   @BeforeEach
@@ -336,7 +356,7 @@ class JTypeTest {
     astParser.setResolveBindings(true);
     astParser.setUnitName("File.java");
     astParser.setSource("".toCharArray());
-    AST ast = astParser.createAST(null).getAST();
+    ast = astParser.createAST(null).getAST();
     sema = new JSema(ast);
   }
 
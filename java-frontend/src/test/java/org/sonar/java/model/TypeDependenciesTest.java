@@ -0,0 +1,49 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2024 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Sonar Source-Available License Version 1, as published by SonarSource SA.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package org.sonar.java.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TypeDependenciesTest {
+
+  @Test
+  void declared_and_referenced_types() {
+    TypeDependencies typeDependencies = TypeDependencies.of(JParserTestUtils.parse("""
+      package org.foo;
+      import java.util.List;
+      import org.sonar.java.checks.VisitorThatCanBeSkipped;
+      class A {
+        List<VisitorThatCanBeSkipped> visitors;
+        org.sonar.java.notchecks.VisitorNotInChecksPackage[] others;
+        Unknown unknown;
+        int count;
+        class Inner { }
+        A self() { return this; }
+      }
+      """));
+    assertThat(typeDependencies.declaredTypes()).containsExactlyInAnyOrder("org.foo.A", "org.foo.A$Inner");
+    assertThat(typeDependencies.referencedTypes()).containsExactlyInAnyOrder(
+      "org.sonar.java.checks.VisitorThatCanBeSkipped",
+      "org.sonar.java.notchecks.VisitorNotInChecksPackage",
+      "org.sonar.plugins.java.api.IssuableSubscriptionVisitor",
+      "org.sonar.java.ast.visitors.SubscriptionVisitor",
+      "org.sonar.plugins.java.api.JavaFileScanner",
+      "org.sonar.plugins.java.api.JavaCheck");
+  }
+}
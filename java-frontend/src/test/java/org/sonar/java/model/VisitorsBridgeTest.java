@@ -23,20 +23,28 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import org.assertj.core.api.Fail;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.slf4j.event.Level;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.java.AnalysisException;
 import org.sonar.java.CheckFailureException;
+import org.sonar.java.RuleCostReport;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.TestUtils;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.caching.CachePayloadCodec;
 import org.sonar.java.checks.EndOfAnalysisVisitor;
 import org.sonar.java.checks.VisitorThatCanBeSkipped;
 import org.sonar.java.exceptions.ApiMismatchException;
@@ -60,6 +68,9 @@ import org.sonar.plugins.java.api.tree.Tree.Kind;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -67,6 +78,7 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 class VisitorsBridgeTest {
 
@@ -190,6 +202,23 @@ class VisitorsBridgeTest {
         "IV1_ThrowingNPEVisitingClass - IV1");
   }
 
+  @ParameterizedTest
+  @ValueSource(ints = {0, 1})
+  void subscription_visitors_are_dispatched_in_tree_order(int visitorTimingSamplingPeriod) {
+    SensorContextTester sensorContextTester = SensorContextTester.create(new File(""));
+    sensorContextTester.setSettings(new MapSettings().setProperty(SonarComponents.SONAR_VISITOR_TIMING_SAMPLING_KEY, visitorTimingSamplingPeriod));
+    sonarComponents = new SonarComponents(null, null, null, null, null, null);
+    sonarComponents.setSensorContext(sensorContextTester);
+    RecordingVisitor recordingVisitor = new RecordingVisitor();
+    VisitorsBridge visitorsBridge = new VisitorsBridge(List.of(recordingVisitor, new RecordingVisitor()), new ArrayList<>(), sonarComponents);
+    visitorsBridge.setCurrentFile(INPUT_FILE);
+
+    visitorsBridge.visitFile(COMPILATION_UNIT_TREE, false);
+    assertThat(recordingVisitor.events).containsExactly(
+      "visit CLASS", "visit METHOD", "token foo", "trivia // this is a trivia", "leave METHOD", "leave CLASS", "leave file");
+    assertThat(logTester.logs(Level.ERROR)).isEmpty();
+  }
+
   @Test
   void no_log_when_filter_execute_fine() {
     VisitorsBridge visitorsBridge = visitorsBridge(Arrays.asList(), true);
@@ -212,6 +241,33 @@ class VisitorsBridgeTest {
     verify(specificSonarComponents, never()).symbolizableFor(any());
   }
 
+  @Test
+  void type_dependencies_are_recorded_for_fully_analyzed_files_when_enabled() {
+    SensorContextTester sensorContext = SensorContextTester.create(new File(""));
+    sensorContext.setCacheEnabled(true);
+    WriteCache writeCache = mock(WriteCache.class);
+    sensorContext.setNextCache(writeCache);
+    sensorContext.setPreviousCache(mock(ReadCache.class));
+    SonarComponents specificSonarComponents = mock(SonarComponents.class);
+    doReturn(sensorContext).when(specificSonarComponents).context();
+    doReturn(sensorContext.previousCache()).when(specificSonarComponents).previousCache();
+    doReturn(writeCache).when(specificSonarComponents).nextCache();
+    doReturn(mock(NewSymbolTable.class)).when(specificSonarComponents).symbolizableFor(any());
+    VisitorsBridge bridge = new VisitorsBridge(Collections.emptySet(), Collections.emptyList(), specificSonarComponents);
+    bridge.setCurrentFile(INPUT_FILE);
+
+    bridge.visitFile(COMPILATION_UNIT_TREE, false);
+    verifyNoInteractions(writeCache);
+
+    doReturn(true).when(specificSonarComponents).isTypeDependencyTrackingEnabled();
+    bridge.visitFile(COMPILATION_UNIT_TREE, true);
+    verifyNoInteractions(writeCache);
+
+    bridge.visitFile(COMPILATION_UNIT_TREE, false);
+    verify(writeCache).write("java:declaredTypes:" + INPUT_FILE.key(), CachePayloadCodec.encodeStrings(List.of("A")));
+    verify(writeCache).write("java:referencedTypes:" + INPUT_FILE.key(), CachePayloadCodec.encodeStrings(List.of()));
+  }
+
   @Test
   void filter_scanner_by_java_version() {
     List<String> trace = new ArrayList<>();
@@ -283,6 +339,43 @@ class VisitorsBridgeTest {
     assertThat(trace).containsExactly("RuleForAllJavaVersion", "RuleForJava15", "SubscriptionVisitorForJava10");
   }
 
+  @Test
+  void required_warnings_are_collected_from_compatible_visitors() {
+    class UnusedImportRule implements JavaFileScanner, JWarningsConsumer {
+      @Override
+      public Set<JProblem.Type> requiredWarnings() {
+        return Set.of(JProblem.Type.UNUSED_IMPORT);
+      }
+
+      @Override
+      public void scanFile(JavaFileScannerContext context) {
+        //empty implementation
+      }
+    }
+    class RedundantCastRuleForJava15 implements JavaFileScanner, JWarningsConsumer, JavaVersionAwareVisitor {
+      @Override
+      public Set<JProblem.Type> requiredWarnings() {
+        return Set.of(JProblem.Type.REDUNDANT_CAST, JProblem.Type.UNUSED_IMPORT);
+      }
+
+      @Override
+      public boolean isCompatibleWithJavaVersion(JavaVersion version) {
+        return version.isJava15Compatible();
+      }
+
+      @Override
+      public void scanFile(JavaFileScannerContext context) {
+        //empty implementation
+      }
+    }
+    List<JavaFileScanner> visitors = List.of(new UnusedImportRule(), new RedundantCastRuleForJava15(), new JFS_ThrowingNPEJavaFileScanner());
+    assertThat(new VisitorsBridge(Collections.emptyList(), Collections.emptyList(), null).requiredWarnings()).isEmpty();
+    assertThat(new VisitorsBridge(visitors, Collections.emptyList(), null, new JavaVersionImpl(8)).requiredWarnings())
+      .containsExactly(JProblem.Type.UNUSED_IMPORT);
+    assertThat(new VisitorsBridge(visitors, Collections.emptyList(), null, new JavaVersionImpl(17)).requiredWarnings())
+      .containsExactlyInAnyOrder(JProblem.Type.UNUSED_IMPORT, JProblem.Type.REDUNDANT_CAST);
+  }
+
   @Test
   void canSkipScanningOfUnchangedFiles_returns_false_by_default() {
     VisitorsBridge vb = visitorsBridge(Collections.emptyList(), true);
@@ -363,6 +456,65 @@ class VisitorsBridgeTest {
     verify(incompatibleVisitor, never()).visitNode(any());
   }
 
+  @Test
+  void rule_costs_are_recorded_in_the_report() throws ApiMismatchException {
+    SonarComponents specificSonarComponents = mock(SonarComponents.class);
+    RuleCostReport report = mock(RuleCostReport.class);
+    doReturn(true).when(specificSonarComponents).canSkipUnchangedFiles();
+    doReturn(true).when(specificSonarComponents).sampleVisitorTiming();
+    doReturn(report).when(specificSonarComponents).ruleCostReport();
+
+    VisitorThatCanBeSkipped skippableVisitor = new VisitorThatCanBeSkipped();
+    VisitorNotInChecksPackage unskippableVisitor = new VisitorNotInChecksPackage();
+    UnskippableScanner unskippableScanner = new UnskippableScanner();
+    VisitorsBridge visitorsBridge = new VisitorsBridge(
+      List.of(skippableVisitor, unskippableVisitor, unskippableScanner),
+      Collections.emptyList(),
+      specificSonarComponents,
+      JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION
+    );
+
+    visitorsBridge.visitFile(null, true);
+    verify(report, times(1)).addSkippedFile(skippableVisitor);
+    verify(report, times(1)).addCost(eq(unskippableScanner), anyLong(), anyLong());
+    verify(report, atLeastOnce()).addSampledCost(eq(unskippableVisitor), anyLong(), anyLong());
+    verify(report, times(1)).addVisitedNodes(unskippableVisitor, 1L);
+    verify(report, never()).addSampledCost(eq(skippableVisitor), anyLong(), anyLong());
+
+    visitorsBridge.visitFile(null, false);
+    verify(report, times(1)).addSkippedFile(any());
+    verify(report, times(2)).addCost(eq(unskippableScanner), anyLong(), anyLong());
+    verify(report, atLeastOnce()).addSampledCost(eq(skippableVisitor), anyLong(), anyLong());
+    verify(report, times(1)).addVisitedNodes(skippableVisitor, 1L);
+  }
+
+  @Test
+  void visited_trivia_are_recorded_in_the_report() {
+    SonarComponents specificSonarComponents = mock(SonarComponents.class);
+    RuleCostReport report = mock(RuleCostReport.class);
+    doReturn(report).when(specificSonarComponents).ruleCostReport();
+    class TriviaVisitor extends IssuableSubscriptionVisitor {
+      int visitedTrivia = 0;
+
+      @Override
+      public List<Tree.Kind> nodesToVisit() {
+        return List.of(Tree.Kind.TRIVIA);
+      }
+
+      @Override
+      public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+        visitedTrivia++;
+      }
+    }
+    TriviaVisitor triviaVisitor = new TriviaVisitor();
+    VisitorsBridge visitorsBridge = new VisitorsBridge(List.of(triviaVisitor), Collections.emptyList(), specificSonarComponents);
+    visitorsBridge.setCurrentFile(INPUT_FILE);
+
+    visitorsBridge.visitFile(JParserTestUtils.parse("// first\nclass A { /* second */ void m() { } } // third"), false);
+    assertThat(triviaVisitor.visitedTrivia).isEqualTo(3);
+    verify(report, times(1)).addVisitedNodes(triviaVisitor, 3L);
+  }
+
   @Test
   void endOfAnalysis_logs_nothing_when_no_file_has_been_analyzed() {
     VisitorsBridge visitorsBridge = new VisitorsBridge(
@@ -753,4 +905,47 @@ class VisitorsBridgeTest {
       return false;
     }
   }
+
+  private static class UnskippableScanner implements JavaFileScanner {
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      //empty implementation
+    }
+  }
+
+  private static class RecordingVisitor extends IssuableSubscriptionVisitor {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return List.of(Tree.Kind.CLASS, Tree.Kind.METHOD, Tree.Kind.TOKEN, Tree.Kind.TRIVIA);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      events.add("visit " + tree.kind());
+    }
+
+    @Override
+    public void leaveNode(Tree tree) {
+      events.add("leave " + tree.kind());
+    }
+
+    @Override
+    public void visitToken(SyntaxToken syntaxToken) {
+      if ("foo".equals(syntaxToken.text())) {
+        events.add("token foo");
+      }
+    }
+
+    @Override
+    public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+      events.add("trivia " + syntaxTrivia.comment());
+    }
+
+    @Override
+    public void leaveFile(JavaFileScannerContext context) {
+      events.add("leave file");
+    }
+  }
 }
@@ -143,6 +143,38 @@ class MethodMatchersTest {
       .containsExactly(11);
   }
 
+  @Test
+  void test_names_of_or() {
+    String source = "" +
+      /* 01 */ "interface A {\n" +
+      /* 02 */ "  void a(int x);\n" +
+      /* 03 */ "  void aa(int x);\n" +
+      /* 04 */ "  void b(int x);\n" +
+      /* 05 */ "}\n" +
+      /* 06 */ "class Main {\n" +
+      /* 07 */ "  void main(A a) {\n" +
+      /* 08 */ "    a.a(12);\n" +
+      /* 09 */ "    a.aa(12);\n" +
+      /* 10 */ "    a.b(12);\n" +
+      /* 11 */ "    new Main();\n" +
+      /* 12 */ "  }\n" +
+      /* 13 */ "} \n";
+
+    MethodMatchers a = MethodMatchers.create().ofTypes("A").names("a").withAnyParameters().build();
+    MethodMatchers aOrB = MethodMatchers.create().ofTypes("A").names("a", "b").withAnyParameters().build();
+    MethodMatchers startsWithA = MethodMatchers.create().ofTypes("A").name(name -> name.startsWith("a")).withAnyParameters().build();
+    MethodMatchers anyName = MethodMatchers.create().ofTypes("A").anyName().withAnyParameters().build();
+    MethodMatchers constructor = MethodMatchers.create().ofTypes("Main").constructor().withAnyParameters().build();
+
+    assertThat(findMatchesOnTree(source, MethodMatchers.or(a, constructor))).containsExactly(2, 8, 11);
+    assertThat(findMatchesOnTree(source, MethodMatchers.or(aOrB, a))).containsExactly(2, 4, 8, 10);
+    assertThat(findMatchesOnTree(source, MethodMatchers.or(a, startsWithA))).containsExactly(2, 3, 8, 9);
+    assertThat(findMatchesOnTree(source, MethodMatchers.or(a, anyName))).containsExactly(2, 3, 4, 8, 9, 10);
+    assertThat(findMatchesOnTree(source, MethodMatchers.or(MethodMatchers.none(), MethodMatchers.or(a, MethodMatchers.or(startsWithA, constructor)))))
+      .containsExactly(2, 3, 8, 9, 11);
+    assertThat(findMatchesOnSymbol(source, MethodMatchers.or(aOrB, constructor))).containsExactly(2, 4, 8, 10, 11);
+  }
+
   @Test
   void test_parameters() {
     String source = "" +
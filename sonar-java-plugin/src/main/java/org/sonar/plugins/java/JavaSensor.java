@@ -17,6 +17,7 @@
 package org.sonar.plugins.java;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.UnaryOperator;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,7 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.java.GeneratedCheckList;
 import org.sonar.java.JavaFrontend;
 import org.sonar.java.Measurer;
+import org.sonar.java.SampledPerformanceMeasure;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.filters.PostAnalysisIssueFilter;
 import org.sonar.java.jsp.Jasper;
@@ -61,6 +64,7 @@ public class JavaSensor implements Sensor {
   private static final String PERFORMANCE_MEASURE_ACTIVATION_PROPERTY = "sonar.java.performance.measure";
   private static final String PERFORMANCE_MEASURE_FILE_PATH_PROPERTY = "sonar.java.performance.measure.path";
   private static final String PERFORMANCE_MEASURE_DESTINATION_FILE = "sonar.java.performance.measure.json";
+  private static final String PERFORMANCE_MEASURE_ANALYSIS_FILE = "sonar.java.performance.measure.analysis.json";
 
   private final SonarComponents sonarComponents;
   private final FileSystem fs;
@@ -97,7 +101,13 @@ public class JavaSensor implements Sensor {
 
   @Override
   public void execute(SensorContext context) {
-    PerformanceMeasure.Duration sensorDuration = createPerformanceMeasureReport(context);
+    String performanceMeasureFile = performanceMeasureFile(context);
+    Path analysisMeasureFile = analysisPerformanceMeasureFile(context, performanceMeasureFile);
+    if (analysisMeasureFile != null) {
+      SampledPerformanceMeasure.deleteAnalysisMeasureFile(analysisMeasureFile);
+    }
+    PerformanceMeasure.Duration sensorDuration = createPerformanceMeasureReport(context,
+      analysisMeasureFile != null ? analysisMeasureFile.toString() : performanceMeasureFile);
 
     sonarComponents.setSensorContext(context);
     sonarComponents.setCheckFilter(createCheckFilter(sonarComponents.isAutoScanCheckFiltering()));
@@ -109,6 +119,10 @@ public class JavaSensor implements Sensor {
     frontend.scan(getSourceFiles(), getTestFiles(), runJasper(context));
 
     sensorDuration.stop();
+    if (analysisMeasureFile != null) {
+      SampledPerformanceMeasure.extrapolateAndMerge(analysisMeasureFile, Path.of(performanceMeasureFile),
+        sonarComponents.visitorTimingExtrapolationFactor());
+    }
   }
 
   private UnaryOperator<List<JavaCheck>> createCheckFilter(boolean isAutoScanCheckFiltering) {
@@ -129,19 +143,41 @@ public class JavaSensor implements Sensor {
     }
   }
 
-  private static PerformanceMeasure.Duration createPerformanceMeasureReport(SensorContext context) {
+  private static PerformanceMeasure.Duration createPerformanceMeasureReport(SensorContext context, @Nullable String performanceMeasureFile) {
     return PerformanceMeasure.reportBuilder()
-      .activate(context.config().get(PERFORMANCE_MEASURE_ACTIVATION_PROPERTY).filter("true"::equals).isPresent())
-      .toFile(context.config().get(PERFORMANCE_MEASURE_FILE_PATH_PROPERTY)
-        .filter(path -> !path.isEmpty())
-        .orElseGet(() -> Optional.ofNullable(context.fileSystem().workDir())
-          .filter(File::exists)
-          .map(file -> file.toPath().resolve(PERFORMANCE_MEASURE_DESTINATION_FILE).toString())
-          .orElse(null)))
+      .activate(isPerformanceMeasureActive(context))
+      .toFile(performanceMeasureFile)
       .appendMeasurementCost()
       .start("JavaSensor");
   }
 
+  /**
+   * The measures of the current analysis are first written in the work directory, so that the sampled per-visitor measures are
+   * extrapolated before being merged into the performance measure file, which may already contain the measures of other analyses.
+   */
+  @CheckForNull
+  private static Path analysisPerformanceMeasureFile(SensorContext context, @Nullable String performanceMeasureFile) {
+    File workDir = context.fileSystem().workDir();
+    if (!isPerformanceMeasureActive(context) || performanceMeasureFile == null || workDir == null || !workDir.exists()) {
+      return null;
+    }
+    return workDir.toPath().resolve(PERFORMANCE_MEASURE_ANALYSIS_FILE);
+  }
+
+  private static boolean isPerformanceMeasureActive(SensorContext context) {
+    return context.config().get(PERFORMANCE_MEASURE_ACTIVATION_PROPERTY).filter("true"::equals).isPresent();
+  }
+
+  @CheckForNull
+  private static String performanceMeasureFile(SensorContext context) {
+    return context.config().get(PERFORMANCE_MEASURE_FILE_PATH_PROPERTY)
+      .filter(path -> !path.isEmpty())
+      .orElseGet(() -> Optional.ofNullable(context.fileSystem().workDir())
+        .filter(File::exists)
+        .map(file -> file.toPath().resolve(PERFORMANCE_MEASURE_DESTINATION_FILE).toString())
+        .orElse(null));
+  }
+
   private Collection<GeneratedFile> runJasper(SensorContext context) {
     if (sonarComponents.isAutoScan()) {
       // for security reasons, do not run jasper to generate code in autoscan mode
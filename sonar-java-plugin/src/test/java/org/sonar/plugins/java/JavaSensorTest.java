@@ -21,7 +21,9 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 import org.junit.Rule;
 import org.junit.jupiter.api.Test;
@@ -71,6 +73,8 @@ import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.plugins.java.api.JavaVersion;
 import org.sonar.plugins.java.api.JspCodeVisitor;
+import org.sonarsource.performance.measure.DurationMeasure;
+import org.sonarsource.performance.measure.DurationMeasureFiles;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
@@ -303,6 +307,51 @@ class JavaSensorTest {
     assertThat(new String(Files.readAllBytes(defaultPerformanceFile), UTF_8)).contains("\"JavaSensor\"");
   }
 
+  @Test
+  void performance_measures_of_previous_analyses_are_not_extrapolated_again() throws IOException {
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.performance.measure", "true");
+    settings.setProperty("sonar.java.performance.measure.visitorSampling", "2");
+    Path workDir = tmp.newFolder().toPath();
+    Path performanceFile = workDir.resolve("sonar.java.performance.measure.json");
+    DurationMeasure previousCheck = new DurationMeasure("PreviousCheck", 7, 70, new LinkedHashMap<>());
+    DurationMeasure previousVisitors = new DurationMeasure("IssuableSubscriptionVisitors", 1, 100,
+      new LinkedHashMap<>(Map.of("PreviousCheck", previousCheck)));
+    DurationMeasureFiles.writeJson(performanceFile, new DurationMeasure("JavaSensor", 1, 1_000,
+      new LinkedHashMap<>(Map.of("IssuableSubscriptionVisitors", previousVisitors))));
+
+    executeJavaSensorForPerformanceMeasure(settings, workDir);
+    executeJavaSensorForPerformanceMeasure(settings, workDir);
+
+    DurationMeasure measure = DurationMeasureFiles.fromJson(performanceFile);
+    assertThat(measure.calls()).isEqualTo(3);
+    DurationMeasure check = measure.get("IssuableSubscriptionVisitors").get("PreviousCheck");
+    assertThat(check.calls()).isEqualTo(7);
+    assertThat(check.durationNanos()).isEqualTo(70);
+    assertThat(workDir.resolve("sonar.java.performance.measure.analysis.json")).doesNotExist();
+  }
+
+  @Test
+  void performance_measures_left_by_an_interrupted_analysis_are_ignored() throws IOException {
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.performance.measure", "true");
+    settings.setProperty("sonar.java.performance.measure.visitorSampling", "2");
+    Path workDir = tmp.newFolder().toPath();
+    DurationMeasure staleCheck = new DurationMeasure("StaleCheck", 7, 70, new LinkedHashMap<>());
+    DurationMeasure staleVisitors = new DurationMeasure("IssuableSubscriptionVisitors", 1, 100,
+      new LinkedHashMap<>(Map.of("StaleCheck", staleCheck)));
+    DurationMeasureFiles.writeJson(workDir.resolve("sonar.java.performance.measure.analysis.json"), new DurationMeasure("JavaSensor", 5, 1_000,
+      new LinkedHashMap<>(Map.of("IssuableSubscriptionVisitors", staleVisitors))));
+
+    executeJavaSensorForPerformanceMeasure(settings, workDir);
+
+    DurationMeasure measure = DurationMeasureFiles.fromJson(workDir.resolve("sonar.java.performance.measure.json"));
+    assertThat(measure.calls()).isEqualTo(1);
+    DurationMeasure visitors = measure.get("IssuableSubscriptionVisitors");
+    assertThat(visitors == null || visitors.get("StaleCheck") == null).isTrue();
+    assertThat(workDir.resolve("sonar.java.performance.measure.analysis.json")).doesNotExist();
+  }
+
   /*@Test
   void test_java_version_automatically_accepts_enablePreview_flag_when_maximum_version() throws IOException {
     MapSettings settings = new MapSettings();